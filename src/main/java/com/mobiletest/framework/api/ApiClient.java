@@ -0,0 +1,128 @@
+package com.mobiletest.framework.api;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.TestUtils;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ApiClient hands out REST Assured requests for API tests without touching REST Assured's
+ * static configuration, so API tests can run in parallel.
+ * <p>
+ * Every thread gets its own HTTP client and request specification per base URL, so no client
+ * state such as cookies is shared between threads. All clients borrow their connections from
+ * one pool of keep-alive connections (api.pool.size per host), so consecutive requests reuse
+ * an open connection instead of connecting and negotiating TLS again.
+ * <p>
+ * With api.record.mode=record responses are recorded, and with api.record.mode=replay they
+ * are served from the recording without network access, see {@link RecordReplayFilter}.
+ */
+public class ApiClient {
+
+    private static final String DEFAULT_BASE_URL = "https://jsonplaceholder.typicode.com";
+
+    private static final ThreadLocal<Map<String, RequestSpecification>> specifications =
+            ThreadLocal.withInitial(HashMap::new);
+    @SuppressWarnings("deprecation")
+    private static volatile PoolingClientConnectionManager connectionManager;
+    private static volatile RecordReplayFilter recordReplayFilter;
+
+    /**
+     * Start a JSON request against the configured API (api.base.url).
+     *
+     * @return A new request, to be completed by the test
+     */
+    public static RequestSpecification request() {
+        return request(ConfigReader.getProperty("api.base.url", DEFAULT_BASE_URL));
+    }
+
+    /**
+     * Start a JSON request against the given API.
+     *
+     * @param baseUrl The base URL of the API
+     * @return A new request, to be completed by the test
+     */
+    public static RequestSpecification request(String baseUrl) {
+        RequestSpecification specification = specifications.get()
+                .computeIfAbsent(baseUrl, ApiClient::createSpecification);
+        return RestAssured.given().spec(specification);
+    }
+
+    // REST Assured only accepts the deprecated AbstractHttpClient API of HttpClient 4
+    @SuppressWarnings("deprecation")
+    private static RequestSpecification createSpecification(String baseUrl) {
+        // A client is cheap; it is the connections that are expensive, and those are shared.
+        // reuseHttpClientInstance keeps REST Assured from creating, and closing, a client per request.
+        PoolingClientConnectionManager pool = connectionManager();
+        HttpClientConfig httpClientConfig = HttpClientConfig.httpClientConfig()
+                .httpClientFactory(() -> new DefaultHttpClient(pool))
+                .reuseHttpClientInstance();
+        RequestSpecBuilder builder = new RequestSpecBuilder()
+                .setBaseUri(baseUrl)
+                .setContentType(ContentType.JSON)
+                .setConfig(RestAssuredConfig.config().httpClient(httpClientConfig));
+        if (RecordReplayFilter.getMode() != RecordReplayFilter.Mode.OFF) {
+            builder.addFilter(recordReplayFilter());
+        }
+        return builder.build();
+    }
+
+    private static RecordReplayFilter recordReplayFilter() {
+        if (recordReplayFilter == null) {
+            synchronized (ApiClient.class) {
+                if (recordReplayFilter == null) {
+                    RecordReplayFilter.Mode mode = RecordReplayFilter.getMode();
+                    TestUtils.logInfo("API responses are {} {}", mode == RecordReplayFilter.Mode.RECORD
+                            ? "recorded to" : "replayed from", RecordReplayFilter.getPath());
+                    recordReplayFilter = new RecordReplayFilter(mode, RecordReplayFilter.getPath());
+                }
+            }
+        }
+        return recordReplayFilter;
+    }
+
+    /**
+     * Grow the shared connection pool to at least the given number of connections per host,
+     * e.g. to the number of threads that send requests at the same time, so that no thread
+     * waits for a connection.
+     *
+     * @param connections The minimum number of connections per host
+     */
+    @SuppressWarnings("deprecation")
+    public static void ensurePoolSize(int connections) {
+        PoolingClientConnectionManager pool = connectionManager();
+        synchronized (ApiClient.class) {
+            if (pool.getDefaultMaxPerRoute() < connections) {
+                pool.setMaxTotal(connections);
+                pool.setDefaultMaxPerRoute(connections);
+                TestUtils.logInfo("Grew API connection pool to {} connections per host", connections);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static PoolingClientConnectionManager connectionManager() {
+        if (connectionManager == null) {
+            synchronized (ApiClient.class) {
+                if (connectionManager == null) {
+                    int poolSize = ConfigReader.getInt("api.pool.size", 20);
+                    PoolingClientConnectionManager manager = new PoolingClientConnectionManager();
+                    manager.setMaxTotal(poolSize);
+                    manager.setDefaultMaxPerRoute(poolSize);
+                    TestUtils.logInfo("Created API connection pool with {} connections per host", poolSize);
+                    connectionManager = manager;
+                }
+            }
+        }
+        return connectionManager;
+    }
+}
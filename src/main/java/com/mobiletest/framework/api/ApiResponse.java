@@ -0,0 +1,245 @@
+package com.mobiletest.framework.api;
+
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * ApiResponse is a read-only view of an API response for assertions.
+ * <p>
+ * Every call of {@link Response#jsonPath()} parses the body again. This view parses it once,
+ * on the first path query, and answers all further queries from the cached tree, using the same
+ * GPath syntax as REST Assured. Counting and matching the elements of an array is done by
+ * streaming over the body instead, one element at a time, so a large listing never has to be
+ * held as a tree or a list.
+ */
+public class ApiResponse {
+
+    private final Response response;
+    private JsonPath jsonPath;
+
+    private ApiResponse(Response response) {
+        this.response = response;
+    }
+
+    /**
+     * @param response The response to view
+     * @return A view of the response
+     */
+    public static ApiResponse of(Response response) {
+        return new ApiResponse(response);
+    }
+
+    /**
+     * @return The HTTP status code
+     */
+    public int getStatusCode() {
+        return response.getStatusCode();
+    }
+
+    /**
+     * @return The underlying REST Assured response
+     */
+    public Response getResponse() {
+        return response;
+    }
+
+    /**
+     * @param path A GPath expression, e.g. "address.city"
+     * @return The value at the path, or null if there is none
+     */
+    public <T> T get(String path) {
+        return jsonPath().get(path);
+    }
+
+    /**
+     * @param path A GPath expression
+     * @return The value at the path as a string, or null if there is none
+     */
+    public String getString(String path) {
+        return jsonPath().getString(path);
+    }
+
+    /**
+     * @param path A GPath expression
+     * @return The value at the path as an int
+     */
+    public int getInt(String path) {
+        return jsonPath().getInt(path);
+    }
+
+    /**
+     * @param path A GPath expression
+     * @return The list at the path, or null if there is none
+     */
+    public <T> List<T> getList(String path) {
+        return jsonPath().getList(path);
+    }
+
+    /**
+     * Count the elements of an array without building it.
+     *
+     * @param arrayPath The dot-separated keys of the array, or "$" for an array at the root
+     * @return The number of elements
+     */
+    public long count(String arrayPath) {
+        return forEachElement(arrayPath, null);
+    }
+
+    /**
+     * Count the objects of an array that match a condition, parsing one object at a time.
+     *
+     * @param arrayPath The dot-separated keys of the array, or "$" for an array at the root
+     * @param condition The condition to test every object with
+     * @return The number of matching objects
+     */
+    public long count(String arrayPath, Predicate<JSONObject> condition) {
+        long[] count = {0};
+        forEachElement(arrayPath, element -> {
+            if (condition.test(asObject(arrayPath, element))) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Check that every object of an array matches a condition, parsing one object at a time.
+     *
+     * @param arrayPath The dot-separated keys of the array, or "$" for an array at the root
+     * @param condition The condition to test every object with
+     * @return True if all objects match, including when the array is empty
+     */
+    public boolean allMatch(String arrayPath, Predicate<JSONObject> condition) {
+        return count(arrayPath, condition.negate()) == 0;
+    }
+
+    /**
+     * Check that at least one object of an array matches a condition, parsing one object at a time.
+     *
+     * @param arrayPath The dot-separated keys of the array, or "$" for an array at the root
+     * @param condition The condition to test every object with
+     * @return True if any object matches
+     */
+    public boolean anyMatch(String arrayPath, Predicate<JSONObject> condition) {
+        return count(arrayPath, condition) > 0;
+    }
+
+    private JsonPath jsonPath() {
+        if (jsonPath == null) {
+            jsonPath = response.jsonPath();
+        }
+        return jsonPath;
+    }
+
+    /**
+     * Stream over the body to the array at a path and hand its elements to a consumer one by one.
+     * Values next to the path, and the elements themselves if there is no consumer, are skipped
+     * without being parsed.
+     *
+     * @return The number of elements
+     */
+    private long forEachElement(String arrayPath, Consumer<Object> consumer) {
+        String[] keys = arrayPath.isEmpty() || "$".equals(arrayPath) ? new String[0] : arrayPath.split("\\.");
+        Reader reader = new InputStreamReader(new ByteArrayInputStream(response.asByteArray()), StandardCharsets.UTF_8);
+        JSONTokener tokener = new JSONTokener(reader);
+
+        for (String key : keys) {
+            if (!skipToKey(tokener, key)) {
+                throw new IllegalArgumentException("No array at path '" + arrayPath + "' in the response");
+            }
+        }
+        if (tokener.nextClean() != '[') {
+            throw new IllegalArgumentException("The value at path '" + arrayPath + "' is not an array");
+        }
+        if (tokener.nextClean() == ']') {
+            return 0;
+        }
+        tokener.back();
+        long count = 0;
+        while (true) {
+            if (consumer == null) {
+                skipValue(tokener);
+            } else {
+                consumer.accept(tokener.nextValue());
+            }
+            count++;
+            char separator = tokener.nextClean();
+            if (separator == ']') {
+                return count;
+            }
+            if (separator != ',') {
+                throw tokener.syntaxError("Expected ',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Advance the tokener, positioned before an object, to the value of one of its keys.
+     *
+     * @return False if the value is not an object or has no such key
+     */
+    private static boolean skipToKey(JSONTokener tokener, String key) {
+        if (tokener.nextClean() != '{') {
+            return false;
+        }
+        char next = tokener.nextClean();
+        while (next == '"') {
+            String name = tokener.nextString('"');
+            if (tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected ':'");
+            }
+            if (name.equals(key)) {
+                return true;
+            }
+            skipValue(tokener);
+            next = tokener.nextClean();
+            if (next == ',') {
+                next = tokener.nextClean();
+            }
+        }
+        return false;
+    }
+
+    private static void skipValue(JSONTokener tokener) {
+        char c = tokener.nextClean();
+        if (c == '"') {
+            tokener.nextString('"');
+            return;
+        }
+        if (c != '{' && c != '[') {
+            tokener.back();
+            tokener.nextValue();
+            return;
+        }
+        int depth = 1;
+        while (depth > 0) {
+            c = tokener.next();
+            if (c == '"') {
+                tokener.nextString('"');
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            } else if (c == 0) {
+                throw tokener.syntaxError("Unterminated value");
+            }
+        }
+    }
+
+    private static JSONObject asObject(String arrayPath, Object element) {
+        if (!(element instanceof JSONObject)) {
+            throw new IllegalArgumentException("The array at path '" + arrayPath + "' holds " + element + ", not objects");
+        }
+        return (JSONObject) element;
+    }
+}
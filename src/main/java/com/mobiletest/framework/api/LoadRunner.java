@@ -0,0 +1,289 @@
+package com.mobiletest.framework.api;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.LatencyHistogram;
+import com.mobiletest.framework.utils.TestUtils;
+import org.apache.logging.log4j.ThreadContext;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * LoadRunner replays test scenarios, e.g. the requests of the API tests, concurrently as a
+ * throughput benchmark and reports requests per second and latency percentiles.
+ * <p>
+ * After an unmeasured warm-up of load.warmup, load.concurrency workers run the selected
+ * scenarios in turn until load.requests scenarios have been run or load.duration is over,
+ * whichever comes first. Workers are virtual threads on JDKs that have them, so the concurrency
+ * can be raised to thousands; on older JDKs they are a fixed pool of platform threads.
+ * <p>
+ * Workers run with the {@value #LOAD_CONTEXT_KEY} thread context key set, for which log4j2.xml
+ * drops messages below WARN, so that the measured latencies do not include waiting for the log
+ * appender; scenario errors are still reported.
+ */
+public class LoadRunner {
+
+    /** Thread context key marking load workers; its value is "true" while a worker runs */
+    public static final String LOAD_CONTEXT_KEY = "load";
+
+    private static final Path REPORT_PATH = Paths.get(System.getProperty("user.dir"), "target", "load-report.json");
+
+    /**
+     * Run the scenarios selected by load.scenarios (default all) with the configured
+     * concurrency, duration and request count, and write the report to target/load-report.json.
+     *
+     * @param scenarios The scenarios by name; each run of a scenario counts as one request
+     * @return The report of the run
+     */
+    public static LoadReport run(Map<String, Runnable> scenarios) {
+        String selection = ConfigReader.getProperty("load.scenarios", "").trim();
+        Map<String, Runnable> selected = new LinkedHashMap<>(scenarios);
+        if (!selection.isEmpty()) {
+            List<String> names = Arrays.stream(selection.split(",")).map(String::trim).collect(Collectors.toList());
+            for (String name : names) {
+                if (!scenarios.containsKey(name)) {
+                    throw new IllegalArgumentException("Unknown load scenario: " + name + ", available: " + scenarios.keySet());
+                }
+            }
+            selected.keySet().retainAll(names);
+        }
+
+        int concurrency = ConfigReader.getInt("load.concurrency", 20);
+        // With fewer connections than workers, the workers would measure waiting for a connection
+        ApiClient.ensurePoolSize(concurrency);
+        Duration warmup = ConfigReader.getDuration("load.warmup", Duration.ofSeconds(10));
+        if (!warmup.isZero()) {
+            // The first requests of every thread load and compile the HTTP and JSON stack
+            TestUtils.logInfo("Warming up for {} seconds", warmup.getSeconds());
+            run(selected, concurrency, warmup, 0);
+        }
+        LoadReport report = run(selected, concurrency,
+                ConfigReader.getDuration("load.duration", Duration.ofSeconds(30)),
+                ConfigReader.getInt("load.requests", 0));
+        report.log();
+        report.write(REPORT_PATH);
+        return report;
+    }
+
+    /**
+     * Run scenarios concurrently.
+     *
+     * @param scenarios The scenarios by name, run in turn
+     * @param concurrency The number of scenarios running at the same time
+     * @param duration The maximum duration of the run
+     * @param requests The maximum number of scenario runs, or 0 to run for the whole duration
+     * @return The report of the run
+     */
+    public static LoadReport run(Map<String, Runnable> scenarios, int concurrency, Duration duration, long requests) {
+        if (scenarios.isEmpty()) {
+            throw new IllegalArgumentException("No load scenarios selected");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("load.concurrency must be at least 1 but was " + concurrency);
+        }
+        List<String> names = new ArrayList<>(scenarios.keySet());
+        LoadReport report = new LoadReport(names);
+        AtomicLong issued = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+
+        TestUtils.logInfo("Running load scenarios {} with {} workers for {} seconds{}", names, concurrency,
+                duration.getSeconds(), requests > 0 ? " or " + requests + " requests" : "");
+        ExecutorService executor = newExecutor(concurrency);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(executor.submit(() -> {
+                ThreadContext.put(LOAD_CONTEXT_KEY, "true");
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long request = issued.getAndIncrement();
+                        if (requests > 0 && request >= requests) {
+                            return;
+                        }
+                        String name = names.get((int) (request % names.size()));
+                        long scenarioStart = System.nanoTime();
+                        try {
+                            scenarios.get(name).run();
+                            report.record(name, System.nanoTime() - scenarioStart, null);
+                        } catch (RuntimeException | AssertionError e) {
+                            report.record(name, System.nanoTime() - scenarioStart, e);
+                        }
+                    }
+                } finally {
+                    ThreadContext.remove(LOAD_CONTEXT_KEY);
+                }
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running load scenarios", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Load worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    /**
+     * Create the executor the workers run on: a virtual thread per worker where the JDK
+     * supports it (Java 21+), otherwise a fixed pool with a platform thread per worker.
+     */
+    private static ExecutorService newExecutor(int concurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newFixedThreadPool(concurrency, runnable -> {
+                Thread thread = new Thread(runnable, "load-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * The requests, errors and latencies of a load run, per scenario and in total.
+     */
+    public static final class LoadReport {
+        private static final String TOTAL = "total";
+
+        private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        private final Map<String, LongAdder> errors = new LinkedHashMap<>();
+        private final Set<String> reportedErrors = ConcurrentHashMap.newKeySet();
+        private volatile long elapsedNanos;
+
+        private LoadReport(List<String> scenarios) {
+            for (String scenario : scenarios) {
+                latencies.put(scenario, new LatencyHistogram());
+                errors.put(scenario, new LongAdder());
+            }
+            latencies.put(TOTAL, new LatencyHistogram());
+            errors.put(TOTAL, new LongAdder());
+        }
+
+        private void record(String scenario, long nanos, Throwable error) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            latencies.get(scenario).record(micros);
+            latencies.get(TOTAL).record(micros);
+            if (error != null) {
+                errors.get(scenario).increment();
+                errors.get(TOTAL).increment();
+                // Log the first error of every scenario only, a failing backend would flood the log
+                if (reportedErrors.add(scenario)) {
+                    TestUtils.logError("Load scenario " + scenario + " failed", error);
+                }
+            }
+        }
+
+        /**
+         * @return The number of scenario runs, including failed ones
+         */
+        public long getRequests() {
+            return latencies.get(TOTAL).getCount();
+        }
+
+        /**
+         * @return The number of scenario runs that failed
+         */
+        public long getErrors() {
+            return errors.get(TOTAL).sum();
+        }
+
+        /**
+         * @return The wall-clock duration of the run
+         */
+        public Duration getElapsed() {
+            return Duration.ofNanos(elapsedNanos);
+        }
+
+        /**
+         * @return The scenario runs per second
+         */
+        public double getRequestsPerSecond() {
+            return elapsedNanos == 0 ? 0 : getRequests() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @param scenario The scenario name, or "total"
+         * @return The latencies of the scenario in microseconds
+         */
+        public LatencyHistogram getLatencies(String scenario) {
+            return latencies.get(scenario);
+        }
+
+        /**
+         * @return The report as JSON, with latencies in milliseconds
+         */
+        public JSONObject toJson() {
+            JSONObject scenarios = new JSONObject();
+            for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                scenarios.put(entry.getKey(), new JSONObject()
+                        .put("requests", histogram.getCount())
+                        .put("errors", errors.get(entry.getKey()).sum())
+                        .put("requestsPerSecond", rate(histogram.getCount()))
+                        .put("p50Millis", millis(histogram.percentile(0.50)))
+                        .put("p95Millis", millis(histogram.percentile(0.95)))
+                        .put("p99Millis", millis(histogram.percentile(0.99)))
+                        .put("maxMillis", millis(histogram.getMax())));
+            }
+            return new JSONObject()
+                    .put("elapsedMillis", getElapsed().toMillis())
+                    .put("scenarios", scenarios);
+        }
+
+        private void log() {
+            for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                TestUtils.logInfo("Load {} - requests: {}, errors: {}, {} req/s, p50: {} ms, p95: {} ms, p99: {} ms, max: {} ms",
+                        entry.getKey(), histogram.getCount(), errors.get(entry.getKey()).sum(), rate(histogram.getCount()),
+                        millis(histogram.percentile(0.50)), millis(histogram.percentile(0.95)),
+                        millis(histogram.percentile(0.99)), millis(histogram.getMax()));
+            }
+        }
+
+        private void write(Path path) {
+            try {
+                Files.createDirectories(path.getParent());
+                Files.write(path, toJson().toString(2).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                TestUtils.logError("Failed to write load report", e);
+            }
+        }
+
+        private double rate(long count) {
+            return elapsedNanos == 0 ? 0 : Math.round(count * 1e10 / elapsedNanos) / 10.0;
+        }
+
+        private static double millis(long micros) {
+            return Math.round(micros / 10.0) / 100.0;
+        }
+    }
+}
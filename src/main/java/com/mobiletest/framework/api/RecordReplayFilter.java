@@ -0,0 +1,154 @@
+package com.mobiletest.framework.api;
+
+import com.mobiletest.framework.api.RecordingStore.Recording;
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.TestUtils;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * RecordReplayFilter records the responses of API requests and replays them without network access.
+ * <p>
+ * In record mode every request is sent and its response is stored in the recording file. In
+ * replay mode responses are served from that file and nothing is sent; a request that was not
+ * recorded fails. Requests are matched by method, path, sorted query parameters and a hash of
+ * the body, so recordings do not depend on the host they were recorded against.
+ */
+public class RecordReplayFilter implements Filter {
+
+    private static final Set<String> UNRECORDED_HEADERS = new HashSet<>(Arrays.asList(
+            "date", "content-length", "transfer-encoding", "connection", "keep-alive"));
+
+    /**
+     * What the filter does with requests.
+     */
+    public enum Mode {
+        /** Send requests as usual */
+        OFF,
+        /** Send requests and record their responses */
+        RECORD,
+        /** Serve recorded responses without sending requests */
+        REPLAY
+    }
+
+    private final Mode mode;
+    private final RecordingStore store;
+
+    /**
+     * @param mode Whether to record or replay
+     * @param path The recording file
+     */
+    public RecordReplayFilter(Mode mode, Path path) {
+        this.mode = mode;
+        this.store = new RecordingStore(path);
+    }
+
+    /**
+     * @return The configured mode (api.record.mode: off, record or replay; default off)
+     */
+    public static Mode getMode() {
+        return Mode.valueOf(ConfigReader.getProperty("api.record.mode", "off").trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @return The configured recording file (api.record.path)
+     */
+    public static Path getPath() {
+        return Paths.get(ConfigReader.getProperty("api.record.path", "src/test/resources/api-recordings.bin"));
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
+                           FilterContext context) {
+        String key = requestKey(requestSpec);
+        if (mode == Mode.REPLAY) {
+            Recording recording = store.find(key);
+            if (recording == null) {
+                throw new IllegalStateException("No recorded response for " + key
+                        + "; record it with -Dapi.record.mode=record");
+            }
+            return replay(recording);
+        }
+
+        Response response = context.next(requestSpec, responseSpec);
+        if (mode == Mode.RECORD) {
+            List<String[]> headers = new ArrayList<>();
+            for (Header header : response.getHeaders()) {
+                if (!UNRECORDED_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                    headers.add(new String[]{header.getName(), header.getValue()});
+                }
+            }
+            store.save(key, new Recording(response.getStatusCode(), headers, ByteBuffer.wrap(response.asByteArray())));
+            TestUtils.logInfo("Recorded response {} for {}", response.getStatusCode(), key);
+        }
+        return response;
+    }
+
+    private static Response replay(Recording recording) {
+        List<Header> headers = new ArrayList<>();
+        ResponseBuilder builder = new ResponseBuilder()
+                .setStatusCode(recording.statusCode)
+                .setStatusLine("HTTP/1.1 " + recording.statusCode);
+        for (String[] header : recording.headers) {
+            headers.add(new Header(header[0], header[1]));
+            if ("content-type".equalsIgnoreCase(header[0])) {
+                builder.setContentType(header[1]);
+            }
+        }
+        return builder.setHeaders(new Headers(headers)).setBody(recording.getBody()).build();
+    }
+
+    /**
+     * Build the key a request is recorded under: the method, the path with sorted query
+     * parameters and, if there is a body, a hash of it.
+     */
+    static String requestKey(FilterableRequestSpecification requestSpec) {
+        URI uri = URI.create(requestSpec.getURI());
+        StringBuilder key = new StringBuilder(requestSpec.getMethod().toUpperCase(Locale.ROOT))
+                .append(' ').append(uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath());
+        if (uri.getRawQuery() != null && !uri.getRawQuery().isEmpty()) {
+            String[] parameters = uri.getRawQuery().split("&");
+            Arrays.sort(parameters);
+            key.append('?').append(String.join("&", parameters));
+        }
+        Object body = requestSpec.getBody();
+        if (body != null) {
+            byte[] bytes = body instanceof byte[] ? (byte[]) body : body.toString().getBytes(StandardCharsets.UTF_8);
+            key.append(" body:").append(sha256(bytes), 0, 16);
+        }
+        return key.toString();
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.mobiletest.framework.api;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RecordingStore keeps recorded HTTP responses in a single file.
+ * <p>
+ * Every entry is the request key, the status code, the headers and the body, with
+ * length-prefixed strings and bytes. The file is memory-mapped and indexed on first use;
+ * bodies are only copied out of the mapping when a response is replayed. New keys are
+ * appended; a key recorded again makes the store rewrite the file with the latest entry
+ * per key, so re-recording does not grow it.
+ */
+class RecordingStore {
+
+    private static final int MAGIC = 0x41505231; // "APR1"
+
+    private final Path path;
+    private volatile Map<String, Recording> index;
+
+    RecordingStore(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @param key The normalized request
+     * @return The recorded response, or null if the request was not recorded
+     */
+    Recording find(String key) {
+        return index().get(key);
+    }
+
+    /**
+     * @return The number of recorded requests
+     */
+    int size() {
+        return index().size();
+    }
+
+    /**
+     * Save a recording: append it, or rewrite the file if the key was recorded before.
+     *
+     * @param key The normalized request
+     * @param recording The response to record
+     */
+    synchronized void save(String key, Recording recording) {
+        Map<String, Recording> current = index();
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            if (!current.containsKey(key)) {
+                Files.write(path, encode(key, recording), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } else {
+                Map<String, Recording> compacted = new LinkedHashMap<>(current);
+                compacted.put(key, recording);
+                rewrite(compacted);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to record response to " + path, e);
+        }
+        current.put(key, recording);
+    }
+
+    /**
+     * Write all recordings to a temporary file and move it over the recording file. Recordings
+     * already loaded keep reading the old file's mapping.
+     */
+    private void rewrite(Map<String, Recording> recordings) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                for (Map.Entry<String, Recording> entry : recordings.entrySet()) {
+                    out.write(encode(entry.getKey(), entry.getValue()));
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static byte[] encode(String key, Recording recording) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        writeString(out, key);
+        out.writeInt(recording.statusCode);
+        out.writeInt(recording.headers.size());
+        for (String[] header : recording.headers) {
+            writeString(out, header[0]);
+            writeString(out, header[1]);
+        }
+        byte[] body = recording.getBody();
+        out.writeInt(body.length);
+        out.write(body);
+        return bytes.toByteArray();
+    }
+
+    private Map<String, Recording> index() {
+        if (index == null) {
+            synchronized (this) {
+                if (index == null) {
+                    index = load();
+                }
+            }
+        }
+        return index;
+    }
+
+    private Map<String, Recording> load() {
+        Map<String, Recording> recordings = new ConcurrentHashMap<>();
+        if (!Files.exists(path)) {
+            return recordings;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.hasRemaining()) {
+                if (buffer.getInt() != MAGIC) {
+                    throw new IOException("Corrupt recording at offset " + (buffer.position() - 4));
+                }
+                String key = readString(buffer);
+                int statusCode = buffer.getInt();
+                int headerCount = buffer.getInt();
+                List<String[]> headers = new ArrayList<>(headerCount);
+                for (int i = 0; i < headerCount; i++) {
+                    headers.add(new String[]{readString(buffer), readString(buffer)});
+                }
+                int bodyLength = buffer.getInt();
+                ByteBuffer body = buffer.slice();
+                body.limit(bodyLength);
+                buffer.position(buffer.position() + bodyLength);
+                recordings.put(key, new Recording(statusCode, headers, body));
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Failed to read recorded responses from " + path, e);
+        }
+        return recordings;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A recorded response. The body is a read-only view, usually of the mapped file.
+     */
+    static final class Recording {
+        final int statusCode;
+        final List<String[]> headers;
+        private final ByteBuffer body;
+
+        Recording(int statusCode, List<String[]> headers, ByteBuffer body) {
+            this.statusCode = statusCode;
+            this.headers = Collections.unmodifiableList(headers);
+            this.body = body.asReadOnlyBuffer();
+        }
+
+        byte[] getBody() {
+            ByteBuffer view = body.duplicate();
+            byte[] bytes = new byte[view.remaining()];
+            view.get(bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.mobiletest.framework.config;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.ImmutableCapabilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CapabilityModel is the compiled, immutable form of capabilities.json. It is built once,
+ * validates every platform and device entry up front, and holds one prebuilt capability
+ * template per platform and device so that lookups do not touch the raw JSON.
+ */
+final class CapabilityModel {
+
+    private static final String[] PLATFORMS = {"android", "ios"};
+
+    private final Map<String, Capabilities> templates;
+    private final Map<String, List<String>> deviceNames;
+    private final Map<String, Map<String, Object>> cloudProviders;
+
+    private CapabilityModel(Map<String, Capabilities> templates, Map<String, List<String>> deviceNames,
+                            Map<String, Map<String, Object>> cloudProviders) {
+        this.templates = templates;
+        this.deviceNames = deviceNames;
+        this.cloudProviders = cloudProviders;
+    }
+
+    /**
+     * Compile the capabilities JSON into a model. All validation errors are collected
+     * and reported together.
+     *
+     * @param capabilitiesJson The parsed capabilities.json content
+     * @return The compiled model
+     * @throws IllegalStateException If the JSON contains invalid platform or device entries
+     */
+    static CapabilityModel compile(JSONObject capabilitiesJson) {
+        List<String> errors = new ArrayList<>();
+        Map<String, Capabilities> templates = new HashMap<>();
+        Map<String, List<String>> deviceNames = new HashMap<>();
+
+        for (String platform : PLATFORMS) {
+            if (!capabilitiesJson.has(platform)) {
+                continue;
+            }
+            try {
+                compilePlatform(platform, capabilitiesJson.getJSONObject(platform), templates, deviceNames, errors);
+            } catch (JSONException e) {
+                errors.add(platform + ": " + e.getMessage());
+            }
+        }
+
+        Map<String, Map<String, Object>> cloudProviders = new HashMap<>();
+        if (capabilitiesJson.has("cloud")) {
+            try {
+                JSONObject cloudJson = capabilitiesJson.getJSONObject("cloud");
+                Iterator<String> providers = cloudJson.keys();
+                while (providers.hasNext()) {
+                    String provider = providers.next();
+                    cloudProviders.put(provider.toLowerCase(),
+                            Collections.unmodifiableMap(cloudJson.getJSONObject(provider).toMap()));
+                }
+            } catch (JSONException e) {
+                errors.add("cloud: " + e.getMessage());
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Invalid capabilities configuration:\n  " + String.join("\n  ", errors));
+        }
+
+        return new CapabilityModel(Collections.unmodifiableMap(templates), Collections.unmodifiableMap(deviceNames),
+                Collections.unmodifiableMap(cloudProviders));
+    }
+
+    private static void compilePlatform(String platform, JSONObject platformJson, Map<String, Capabilities> templates,
+                                        Map<String, List<String>> deviceNames, List<String> errors) {
+        if (!platformJson.has("capabilities")) {
+            errors.add(platform + ": missing 'capabilities' object");
+        }
+        if (!platformJson.has("devices")) {
+            errors.add(platform + ": missing 'devices' array");
+            return;
+        }
+
+        Map<String, Object> common = platformJson.has("capabilities")
+                ? platformJson.getJSONObject("capabilities").toMap()
+                : Collections.emptyMap();
+        JSONArray devices = platformJson.getJSONArray("devices");
+        List<String> names = new ArrayList<>();
+
+        for (int i = 0; i < devices.length(); i++) {
+            JSONObject device = devices.optJSONObject(i);
+            if (device == null) {
+                errors.add(platform + ".devices[" + i + "]: not an object");
+                continue;
+            }
+            String name = device.optString("name", null);
+            if (name == null || name.isEmpty()) {
+                errors.add(platform + ".devices[" + i + "]: missing 'name'");
+                continue;
+            }
+            if (!device.has("platformVersion")) {
+                errors.add(platform + ".devices[" + i + "] (" + name + "): missing 'platformVersion'");
+                continue;
+            }
+            if (templates.containsKey(key(platform, name))) {
+                errors.add(platform + ".devices[" + i + "]: duplicate device name '" + name + "'");
+                continue;
+            }
+
+            Map<String, Object> capabilities = new LinkedHashMap<>(common);
+            capabilities.put("deviceName", name);
+            capabilities.put("platformName", platform);
+            capabilities.put("platformVersion", device.get("platformVersion").toString());
+            if (device.has("locale")) {
+                capabilities.put("locale", device.getString("locale"));
+            }
+
+            templates.put(key(platform, name), new ImmutableCapabilities(capabilities));
+            names.add(name);
+        }
+
+        deviceNames.put(platform, Collections.unmodifiableList(names));
+    }
+
+    /**
+     * Get the prebuilt capability template for a device.
+     *
+     * @param platform The platform (android or ios)
+     * @param deviceName The device name
+     * @return The immutable template, or null if the device is not defined
+     */
+    Capabilities getTemplate(String platform, String deviceName) {
+        return templates.get(key(platform.toLowerCase(), deviceName));
+    }
+
+    /**
+     * @param platform The platform (android or ios)
+     * @return The device names of the platform in file order, or null if the platform is not defined
+     */
+    List<String> getDeviceNames(String platform) {
+        return deviceNames.get(platform.toLowerCase());
+    }
+
+    /**
+     * @param provider The cloud provider
+     * @return The provider's capabilities, or null if the provider is not defined
+     */
+    Map<String, Object> getCloudCapabilities(String provider) {
+        return cloudProviders.get(provider.toLowerCase());
+    }
+
+    private static String key(String platform, String deviceName) {
+        return platform + "|" + deviceName;
+    }
+}
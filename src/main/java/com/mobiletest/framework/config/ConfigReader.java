@@ -1,77 +1,277 @@
 package com.mobiletest.framework.config;
 
+import com.mobiletest.framework.utils.TestUtils;
+
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * ConfigReader is responsible for reading configuration properties from a properties file.
+ * <p>
+ * The configuration is held in an immutable snapshot that is replaced atomically on
+ * (re)load, so readers never observe a half-loaded state. Values are layered, later
+ * layers overriding earlier ones:
+ * <ol>
+ *     <li>the properties file</li>
+ *     <li>environment variables named after a file key, e.g. TEST_TIMEOUT for test.timeout</li>
+ *     <li>-D system properties</li>
+ * </ol>
+ * Typed accessors parse a value once per snapshot and cache the result.
  */
 public class ConfigReader {
-    
-    private static final Properties properties = new Properties();
+
     private static final String DEFAULT_CONFIG_PATH = "src/main/resources/config/config.properties";
-    private static boolean isInitialized = false;
-    
+    private static volatile Snapshot snapshot;
+    private static volatile Thread watcherThread;
+
     /**
      * Initialize the ConfigReader with the default configuration file.
      */
     public static void initialize() {
         initialize(DEFAULT_CONFIG_PATH);
     }
-    
+
     /**
      * Initialize the ConfigReader with a specific configuration file.
-     * 
+     *
      * @param configPath The path to the configuration file
      */
     public static void initialize(String configPath) {
-        try (InputStream input = new FileInputStream(configPath)) {
-            properties.load(input);
-            isInitialized = true;
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load configuration file: " + configPath, e);
-        }
+        snapshot = load(configPath);
     }
-    
+
     /**
      * Get a property value from the configuration.
-     * 
+     *
      * @param key The property key
      * @return The property value
      */
     public static String getProperty(String key) {
-        if (!isInitialized) {
-            initialize();
-        }
-        return properties.getProperty(key);
+        return getSnapshot().values.get(key);
     }
-    
+
     /**
      * Get a property value from the configuration with a default value.
-     * 
+     *
      * @param key The property key
      * @param defaultValue The default value to return if the key is not found
      * @return The property value or the default value
      */
     public static String getProperty(String key, String defaultValue) {
-        if (!isInitialized) {
-            initialize();
-        }
-        return properties.getProperty(key, defaultValue);
+        return getSnapshot().values.getOrDefault(key, defaultValue);
     }
-    
+
     /**
      * Check if a property exists in the configuration.
-     * 
+     *
      * @param key The property key
      * @return True if the property exists, false otherwise
      */
     public static boolean hasProperty(String key) {
-        if (!isInitialized) {
-            initialize();
+        return getSnapshot().values.containsKey(key);
+    }
+
+    /**
+     * Get a property as an int.
+     *
+     * @param key The property key
+     * @param defaultValue The default value to return if the key is not found
+     * @return The parsed value or the default value
+     */
+    public static int getInt(String key, int defaultValue) {
+        Integer value = getSnapshot().getTyped("int", key, v -> Integer.valueOf(v.trim()));
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Get a property as a boolean.
+     *
+     * @param key The property key
+     * @param defaultValue The default value to return if the key is not found
+     * @return The parsed value or the default value
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        Boolean value = getSnapshot().getTyped("boolean", key, v -> Boolean.valueOf(v.trim()));
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Get a property as a Duration. Plain numbers are read as seconds, e.g. test.timeout=30;
+     * values with a unit suffix (500ms, 30s, 5m) and ISO-8601 durations (PT30S) are also accepted.
+     *
+     * @param key The property key
+     * @param defaultValue The default value to return if the key is not found
+     * @return The parsed value or the default value
+     */
+    public static Duration getDuration(String key, Duration defaultValue) {
+        Duration value = getSnapshot().getTyped("duration", key, ConfigReader::parseDuration);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Watch the configuration file and swap in a new snapshot whenever it changes.
+     * Intended for long-running soak suites; calling it more than once has no effect.
+     */
+    public static synchronized void enableHotReload() {
+        if (watcherThread != null) {
+            return;
+        }
+
+        Path configFile = Paths.get(getSnapshot().path).toAbsolutePath();
+        Path directory = configFile.getParent();
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (IOException e) {
+            TestUtils.logError("Failed to watch configuration file: {}", configFile, e);
+            return;
+        }
+
+        watcherThread = new Thread(() -> watch(watchService, configFile), "config-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        TestUtils.logInfo("Hot reload enabled for configuration file: {}", configFile);
+    }
+
+    private static void watch(WatchService watchService, Path configFile) {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (configFile.getFileName().equals(event.context())) {
+                    try {
+                        snapshot = load(configFile.toString());
+                        TestUtils.logInfo("Reloaded configuration file: {}", configFile);
+                    } catch (RuntimeException e) {
+                        TestUtils.logError("Failed to reload configuration file, keeping previous values", e);
+                    }
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private static Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (ConfigReader.class) {
+                if (snapshot == null) {
+                    snapshot = load(DEFAULT_CONFIG_PATH);
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static Snapshot load(String configPath) {
+        Properties fileProperties = new Properties();
+        try (InputStream input = new FileInputStream(configPath)) {
+            fileProperties.load(input);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load configuration file: " + configPath, e);
+        }
+
+        Map<String, String> values = new HashMap<>();
+        for (String key : fileProperties.stringPropertyNames()) {
+            values.put(key, fileProperties.getProperty(key));
+        }
+
+        Map<String, String> environment = System.getenv();
+        for (String key : fileProperties.stringPropertyNames()) {
+            String envValue = environment.get(key.toUpperCase(Locale.ROOT).replace('.', '_'));
+            if (envValue != null) {
+                values.put(key, envValue);
+            }
+        }
+
+        Properties systemProperties = System.getProperties();
+        for (String key : systemProperties.stringPropertyNames()) {
+            values.put(key, systemProperties.getProperty(key));
+        }
+
+        return new Snapshot(configPath, Collections.unmodifiableMap(values));
+    }
+
+    /**
+     * Parse a duration in the format accepted by {@link #getDuration}.
+     *
+     * @param value The duration, e.g. 30, 500ms, 30s, 5m or PT30S
+     * @return The parsed duration
+     */
+    public static Duration parseDuration(String value) {
+        String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        if (trimmed.startsWith("p")) {
+            return Duration.parse(trimmed.toUpperCase(Locale.ROOT));
+        }
+        if (trimmed.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2).trim()));
+        }
+        if (trimmed.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(trimmed.substring(0, trimmed.length() - 1).trim()));
+        }
+        if (trimmed.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(trimmed.substring(0, trimmed.length() - 1).trim()));
+        }
+        return Duration.ofSeconds(Long.parseLong(trimmed));
+    }
+
+    /**
+     * An immutable view of the configuration together with its parsed typed values.
+     */
+    private static class Snapshot {
+        private final String path;
+        private final Map<String, String> values;
+        private final Map<String, Map<String, Object>> typedValues = new ConcurrentHashMap<>();
+
+        private Snapshot(String path, Map<String, String> values) {
+            this.path = path;
+            this.values = values;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T getTyped(String type, String key, Function<String, T> parser) {
+            String value = values.get(key);
+            if (value == null) {
+                return null;
+            }
+            // Cached per type and key without building a combined key, so a hit allocates nothing
+            Map<String, Object> valuesOfType = typedValues.get(type);
+            if (valuesOfType == null) {
+                valuesOfType = typedValues.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+            }
+            Object cached = valuesOfType.get(key);
+            if (cached != null) {
+                return (T) cached;
+            }
+            try {
+                return (T) valuesOfType.computeIfAbsent(key, k -> parser.apply(value));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid " + type + " value for " + key + ": " + value, e);
+            }
         }
-        return properties.containsKey(key);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,250 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.TestUtils;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * AppInstallCache remembers which build of the app is installed on which device, so that a
+ * session only pushes and installs the app when the device does not have that build yet.
+ * <p>
+ * A build is identified by the SHA-256 of the app artifact (an .apk or .ipa file, or an .app
+ * directory), computed once per JVM and artifact version. The installed builds are kept in a
+ * JSON file outside of target/ by default, so that they survive mvn clean and later runs. The
+ * file is read once per JVM; lookups are answered from memory and changes are written through.
+ * <p>
+ * Each install also remembers the UDID the installing session reported, so that a different
+ * device that took over the name of the one the build was installed on can be told apart.
+ */
+public class AppInstallCache {
+
+    private static final Map<String, String> buildHashes = new ConcurrentHashMap<>();
+    private static Path loadedPath;
+    private static Map<String, Install> installs;
+
+    /**
+     * @return True if app installs should be skipped for builds a device already has
+     */
+    public static boolean isEnabled() {
+        return ConfigReader.getBoolean("app.install.cache.enabled", true);
+    }
+
+    /**
+     * @return The file holding the installed builds (app.install.cache.path, default
+     *         ~/.cache/mobile-test-framework/app-installs.json)
+     */
+    public static Path getPath() {
+        String path = ConfigReader.getProperty("app.install.cache.path", "").trim();
+        if (path.isEmpty()) {
+            return Paths.get(System.getProperty("user.home"), ".cache", "mobile-test-framework", "app-installs.json");
+        }
+        return Paths.get(path);
+    }
+
+    /**
+     * Get the build of a local app artifact.
+     *
+     * @param app The path of the .apk, .ipa or .app
+     * @return The SHA-256 of the artifact, or null if it is not a local file or directory, e.g. a URL
+     */
+    public static String buildOf(String app) {
+        Path path;
+        try {
+            path = Paths.get(app);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            // Hashing a large artifact takes seconds, so only do it again when it was rebuilt
+            String version = path.toAbsolutePath() + "|" + Files.getLastModifiedTime(path).toMillis() + "|" + Files.size(path);
+            return buildHashes.computeIfAbsent(version, v -> hash(path));
+        } catch (IOException | UncheckedIOException e) {
+            TestUtils.logError("Failed to read app artifact {}", app, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param device The device, e.g. its name or UDID
+     * @param appId The package name or bundle ID of the app
+     * @param build The build hash
+     * @return True if the build was installed on the device by a previous session
+     */
+    public static boolean isInstalled(String device, String appId, String build) {
+        Install install = installs().get(key(device, appId));
+        return install != null && build.equals(install.build);
+    }
+
+    /**
+     * @param device The device, e.g. its name or UDID
+     * @param appId The package name or bundle ID of the app
+     * @return The UDID reported by the session that installed the app, or null if it is unknown
+     */
+    public static String getInstalledUdid(String device, String appId) {
+        Install install = installs().get(key(device, appId));
+        return install == null ? null : install.udid;
+    }
+
+    /**
+     * Record that a build was installed on a device.
+     *
+     * @param device The device, e.g. its name or UDID
+     * @param appId The package name or bundle ID of the app
+     * @param build The build hash
+     * @param udid The UDID reported by the installing session, or null if it reported none
+     */
+    public static void recordInstall(String device, String appId, String build, String udid) {
+        update(key(device, appId), new Install(build, udid));
+        TestUtils.logInfo("Recorded install of build {} on device {}", build.substring(0, 12), device);
+    }
+
+    /**
+     * Forget the build installed on a device, e.g. because the app turned out to be missing.
+     *
+     * @param device The device, e.g. its name or UDID
+     * @param appId The package name or bundle ID of the app
+     */
+    public static void forget(String device, String appId) {
+        update(key(device, appId), null);
+    }
+
+    private static String key(String device, String appId) {
+        return device + "|" + appId;
+    }
+
+    /**
+     * @return The installs of the cache file, read on first use and again if app.install.cache.path changed
+     */
+    private static synchronized Map<String, Install> installs() {
+        Path path = getPath().toAbsolutePath();
+        if (!path.equals(loadedPath)) {
+            installs = load(path);
+            loadedPath = path;
+        }
+        return installs;
+    }
+
+    private static Map<String, Install> load(Path path) {
+        Map<String, Install> installs = new TreeMap<>();
+        if (!Files.exists(path)) {
+            return installs;
+        }
+        try {
+            JSONObject json = new JSONObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+            for (String key : json.keySet()) {
+                JSONObject install = json.optJSONObject(key);
+                installs.put(key, install == null ? new Install(json.getString(key), null)
+                        : new Install(install.getString("build"), install.optString("udid", null)));
+            }
+        } catch (IOException | RuntimeException e) {
+            TestUtils.logError("Failed to read installed app builds from {}, installing again", path, e);
+        }
+        return installs;
+    }
+
+    /**
+     * Change one entry in memory and write the file, merging in the entries other JVMs wrote
+     * since it was read.
+     */
+    private static synchronized void update(String key, Install install) {
+        Path path = getPath().toAbsolutePath();
+        Map<String, Install> merged = load(path);
+        merged.putAll(installs());
+        if (install == null) {
+            merged.remove(key);
+        } else {
+            merged.put(key, install);
+        }
+        installs = merged;
+
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, Install> entry : merged.entrySet()) {
+            JSONObject value = new JSONObject().put("build", entry.getValue().build);
+            if (entry.getValue().udid != null) {
+                value.put("udid", entry.getValue().udid);
+            }
+            json.put(entry.getKey(), value);
+        }
+        try {
+            Files.createDirectories(path.getParent());
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temporary, json.toString(2).getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            TestUtils.logError("Failed to write installed app builds to {}", path, e);
+        }
+    }
+
+    /**
+     * Hash a file, or every file of a directory together with its relative path.
+     */
+    private static String hash(Path path) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (Files.isDirectory(path)) {
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(path)) {
+                    files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for (Path file : files) {
+                    digest.update(path.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                    digestFile(digest, file);
+                }
+            } else {
+                digestFile(digest, path);
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to hash app artifact " + path, e);
+        }
+    }
+
+    private static void digestFile(MessageDigest digest, Path file) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * A build installed on a device, with the UDID the installing session reported.
+     */
+    private static class Install {
+        private final String build;
+        private final String udid;
+
+        private Install(String build, String udid) {
+            this.build = build;
+            this.udid = udid;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.mobiletest.framework.core;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declare how thoroughly the app has to be reset before a test method, or before every test
+ * method of a class. An annotation on the method takes precedence over one on the class;
+ * without either, app.reset.default applies.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Inherited
+public @interface AppReset {
+
+    /**
+     * @return The tier the test needs
+     */
+    AppResetTier value();
+}
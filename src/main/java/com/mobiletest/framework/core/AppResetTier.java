@@ -0,0 +1,87 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.ConfigReader;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.MutableCapabilities;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+/**
+ * AppResetTier is how thoroughly the app is reset before a test, from cheapest to most expensive.
+ * A test declares the tier it needs with {@link AppReset}; the session pool applies the cheapest
+ * reset that satisfies it, or none if the session is already in that state.
+ */
+public enum AppResetTier {
+    /** Use the app as the previous test left it */
+    NONE,
+    /** Terminate and relaunch the app */
+    RESTART,
+    /** Clear the app data and relaunch the app */
+    CLEAR_DATA,
+    /** Reinstall the app in a new session */
+    REINSTALL;
+
+    /**
+     * Check if an app reset to this tier also satisfies a test that needs another tier.
+     *
+     * @param required The tier the test needs
+     * @return True if this tier is at least as thorough
+     */
+    public boolean satisfies(AppResetTier required) {
+        return compareTo(required) >= 0;
+    }
+
+    /**
+     * Set the noReset and fullReset capabilities for a new session of this tier. Only
+     * {@link #REINSTALL} reinstalls the app and {@link #CLEAR_DATA} lets Appium clear its data;
+     * the other tiers start the app as it is, since the pool resets it between tests anyway.
+     *
+     * @param capabilities The capabilities to override
+     */
+    public void applyTo(MutableCapabilities capabilities) {
+        capabilities.setCapability("noReset", this != REINSTALL && this != CLEAR_DATA);
+        capabilities.setCapability("fullReset", this == REINSTALL);
+    }
+
+    /**
+     * Get the tier the app state of a new session satisfies, given its capabilities.
+     *
+     * @param capabilities The capabilities the session is created with
+     * @return The tier of the fresh app state
+     */
+    public static AppResetTier ofNewSession(Capabilities capabilities) {
+        if (Boolean.parseBoolean(String.valueOf(capabilities.getCapability("fullReset")))) {
+            return REINSTALL;
+        }
+        if (!Boolean.parseBoolean(String.valueOf(capabilities.getCapability("noReset")))) {
+            return CLEAR_DATA;
+        }
+        return RESTART;
+    }
+
+    /**
+     * Get the tier a test method needs: its own {@link AppReset} annotation, else that of the
+     * test class it runs in, else app.reset.default. The test class is the one instantiated for
+     * the test, not the one declaring the method, so that a subclass can change the tier of the
+     * test methods it inherits.
+     *
+     * @param testClass The class of the test instance
+     * @param method The test method
+     * @return The required tier
+     */
+    public static AppResetTier forMethod(Class<?> testClass, Method method) {
+        AppReset reset = method.getAnnotation(AppReset.class);
+        if (reset == null) {
+            reset = testClass.getAnnotation(AppReset.class);
+        }
+        return reset != null ? reset.value() : getDefault();
+    }
+
+    /**
+     * @return The configured default tier (app.reset.default: none, restart, clear_data or reinstall)
+     */
+    public static AppResetTier getDefault() {
+        return valueOf(ConfigReader.getProperty("app.reset.default", "restart").trim().toUpperCase(Locale.ROOT));
+    }
+}
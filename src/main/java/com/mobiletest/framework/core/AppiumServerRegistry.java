@@ -0,0 +1,250 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.TestUtils;
+import io.appium.java_client.AppiumDriver;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * AppiumServerRegistry routes new sessions to one of several Appium servers.
+ * <p>
+ * The servers of a device are read from appium.servers.&lt;device name&gt;, else appium.servers,
+ * else appium.server.url. With more than one server, every server's /status is checked when it
+ * is first used and then every appium.health.interval in the background. A session is created
+ * on the healthy server with the fewest active sessions; if that fails and the server turns out
+ * to be down, it is marked unhealthy and the session is created on the next one.
+ */
+public class AppiumServerRegistry {
+
+    private static final String DEFAULT_APPIUM_SERVER_URL = "http://localhost:4723/wd/hub";
+
+    private static final Map<String, Server> servers = new ConcurrentHashMap<>();
+    private static final Map<AppiumDriver, Server> sessions = new ConcurrentHashMap<>();
+    private static volatile ScheduledExecutorService healthChecker;
+
+    /**
+     * Get the Appium servers a device can be used through, in configuration order.
+     *
+     * @param deviceName The device name
+     * @return The server URLs
+     */
+    public static List<String> getServerUrls(String deviceName) {
+        // Read for every session, so that a stub server or a reloaded configuration takes effect
+        String urls = ConfigReader.getProperty("appium.servers." + deviceName, "").trim();
+        if (urls.isEmpty()) {
+            urls = ConfigReader.getProperty("appium.servers", "").trim();
+        }
+        if (urls.isEmpty()) {
+            urls = ConfigReader.getProperty("appium.server.url", DEFAULT_APPIUM_SERVER_URL).trim();
+        }
+        return Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Create a session for a device on the least loaded healthy server, failing over to the
+     * next server if the chosen one is down.
+     *
+     * @param deviceName The device name
+     * @param factory Creates the session on the given server
+     * @return The new session
+     */
+    public static <T extends AppiumDriver> T createSession(String deviceName, Function<URL, T> factory) {
+        List<Server> candidates = route(deviceName);
+        RuntimeException failure = null;
+        for (Server server : candidates) {
+            server.activeSessions.incrementAndGet();
+            try {
+                T created = factory.apply(server.url);
+                server.sessionsCreated.incrementAndGet();
+                sessions.put(created, server);
+                return created;
+            } catch (RuntimeException e) {
+                server.activeSessions.decrementAndGet();
+                // A session can fail for reasons that have nothing to do with the server, e.g. a busy device
+                if (candidates.size() == 1 || checkHealth(server)) {
+                    throw e;
+                }
+                server.failovers.incrementAndGet();
+                TestUtils.logError("Appium server {} is down, creating the session for device {} on another server",
+                        server.url, deviceName, e);
+                failure = e;
+            }
+        }
+        throw new RuntimeException("No healthy Appium server could create a session for device: " + deviceName, failure);
+    }
+
+    /**
+     * Record that a session created by {@link #createSession} was quit.
+     *
+     * @param driver The quit driver
+     */
+    public static void sessionEnded(AppiumDriver driver) {
+        Server server = sessions.remove(driver);
+        if (server != null) {
+            server.activeSessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * @param url The server URL
+     * @return The number of sessions currently open on the server through this registry
+     */
+    public static int getActiveSessions(String url) {
+        Server server = servers.get(url);
+        return server == null ? 0 : server.activeSessions.get();
+    }
+
+    /**
+     * @param url The server URL
+     * @return False if the last health check of the server failed
+     */
+    public static boolean isHealthy(String url) {
+        Server server = servers.get(url);
+        return server == null || server.healthy;
+    }
+
+    /**
+     * Stop the background health checks and log the sessions created per server.
+     */
+    public static void shutdown() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+        if (servers.size() > 1) {
+            for (Server server : servers.values()) {
+                TestUtils.logInfo("Appium server {} - sessions created: {}, active: {}, failed over: {}, healthy: {}",
+                        server.url, server.sessionsCreated.get(), server.activeSessions.get(),
+                        server.failovers.get(), server.healthy);
+            }
+        }
+    }
+
+    /**
+     * Forget all servers and sessions, e.g. between tests that route to different stub servers.
+     * Call {@link #shutdown()} first.
+     */
+    static void reset() {
+        servers.clear();
+        sessions.clear();
+    }
+
+    /**
+     * Order the servers of a device for a new session: healthy servers with the fewest active
+     * sessions first, unhealthy ones last so that they are still tried if nothing else is left.
+     */
+    private static List<Server> route(String deviceName) {
+        List<String> urls = getServerUrls(deviceName);
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("No Appium server configured for device: " + deviceName);
+        }
+        List<Server> candidates = new ArrayList<>();
+        for (String url : urls) {
+            candidates.add(servers.computeIfAbsent(url, Server::new));
+        }
+        if (candidates.size() == 1) {
+            return candidates;
+        }
+
+        startHealthChecks();
+        for (Server server : candidates) {
+            if (server.lastChecked.get() == 0) {
+                checkHealth(server);
+            }
+        }
+        // The sort is stable, so equally loaded servers are used in configuration order
+        candidates.sort(Comparator.comparing((Server server) -> !server.healthy)
+                .thenComparingInt(server -> server.activeSessions.get()));
+        return candidates;
+    }
+
+    private static void startHealthChecks() {
+        if (healthChecker == null) {
+            synchronized (AppiumServerRegistry.class) {
+                if (healthChecker == null) {
+                    long interval = ConfigReader.getDuration("appium.health.interval", Duration.ofSeconds(30)).toMillis();
+                    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "appium-health-check");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.scheduleWithFixedDelay(() -> servers.values().forEach(AppiumServerRegistry::checkHealth),
+                            interval, interval, TimeUnit.MILLISECONDS);
+                    healthChecker = executor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ask a server for its /status and remember whether it is ready for new sessions.
+     *
+     * @return True if the server is healthy
+     */
+    private static boolean checkHealth(Server server) {
+        int timeout = (int) ConfigReader.getDuration("appium.health.timeout", Duration.ofSeconds(5)).toMillis();
+        boolean healthy;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(server.url + "/status").openConnection();
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            try (InputStream in = connection.getInputStream()) {
+                JSONObject status = new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                JSONObject value = status.optJSONObject("value");
+                healthy = connection.getResponseCode() == 200 && (value == null || value.optBoolean("ready", true));
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException | RuntimeException e) {
+            healthy = false;
+        }
+        if (server.healthy != healthy) {
+            TestUtils.logInfo("Appium server {} is {}", server.url, healthy ? "healthy again" : "unhealthy");
+        }
+        server.healthy = healthy;
+        server.lastChecked.set(System.currentTimeMillis());
+        return healthy;
+    }
+
+    /**
+     * An Appium server and the sessions routed to it.
+     */
+    private static class Server {
+        private final URL url;
+        private final AtomicInteger activeSessions = new AtomicInteger();
+        private final AtomicLong sessionsCreated = new AtomicLong();
+        private final AtomicLong failovers = new AtomicLong();
+        private final AtomicLong lastChecked = new AtomicLong();
+        private volatile boolean healthy = true;
+
+        private Server(String url) {
+            try {
+                this.url = new URL(url);
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("Invalid Appium server URL: " + url, e);
+            }
+        }
+    }
+}
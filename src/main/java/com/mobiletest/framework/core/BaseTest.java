@@ -1,37 +1,55 @@
 package com.mobiletest.framework.core;
 
+import com.mobiletest.framework.config.CapabilityManager;
 import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.pages.WaitEngine;
+import com.mobiletest.framework.stub.StubAppiumServer;
+import com.mobiletest.framework.utils.ScreenshotStore;
+import com.mobiletest.framework.utils.ScreenshotWriter;
 import com.mobiletest.framework.utils.TestUtils;
 import io.appium.java_client.AppiumDriver;
-import io.qameta.allure.Attachment;
 import org.testng.ITestResult;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.Listeners;
 import org.testng.annotations.Optional;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * BaseTest is the parent class for all test classes in the framework.
  * It handles setup and teardown operations, including initializing the Appium driver,
  * taking screenshots on test failures, and generating Allure reports.
  */
+@Listeners({ShardingListener.class, RetryListener.class})
 public abstract class BaseTest {
 
+    private static final List<StubAppiumServer> stubServers = new ArrayList<>();
+
     protected AppiumDriver driver;
 
     /**
      * Setup operations to be performed before the test suite runs
      */
-    @BeforeSuite
+    @BeforeSuite(alwaysRun = true)
     public void beforeSuite() {
         TestUtils.logInfo("Starting test suite execution");
         ConfigReader.initialize();
+        if (ConfigReader.getBoolean("config.hot.reload", false)) {
+            ConfigReader.enableHotReload();
+        }
+        if (ConfigReader.getBoolean("appium.stub.enabled", false)) {
+            startStubServer();
+        }
+        // Load capabilities up front so that configuration errors fail the suite immediately
+        CapabilityManager.initialize();
     }
 
     /**
@@ -40,9 +58,11 @@ public abstract class BaseTest {
      * @param method The test method being executed
      * @param platform The platform to run the test on (android or ios)
      */
-    @BeforeMethod
+    @BeforeMethod(alwaysRun = true)
     @Parameters({"platform"})
     public void beforeMethod(Method method, @Optional String platform) {
+        TestUtils.setTestContext(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+
         // Check if we're running in a direct test execution environment (not through testng.xml)
         boolean isDirectExecution = platform == null;
 
@@ -53,27 +73,38 @@ public abstract class BaseTest {
                             Arrays.asList(method.getAnnotation(Test.class).groups()).contains("api"));
 
         if (isApiTest) {
-            TestUtils.logInfo("Starting API test: " + method.getName());
+            TestUtils.logInfo("Starting API test: {}", method.getName());
             return; // Skip driver initialization for API tests
         }
 
         // If running directly (not through testng.xml), skip driver initialization
         if (isDirectExecution) {
-            TestUtils.logInfo("Running test directly: " + method.getName() + " - skipping driver initialization");
+            TestUtils.logInfo("Running test directly: {} - skipping driver initialization", method.getName());
             return;
         }
 
-        TestUtils.logInfo("Starting test: " + method.getName() + " on platform: " + platform);
+        TestUtils.logInfo("Starting test: {} on platform: {}", method.getName(), platform);
+
+        AppResetTier resetTier = AppResetTier.forMethod(getClass(), method);
+
+        // A retried test runs right after its failed attempt, on the session that attempt kept
+        if (DeviceManager.resumeDriver(resetTier)) {
+            TestUtils.setDeviceContext(DeviceLeaseManager.getLeasedDevice());
+            TestUtils.logInfo("Reusing the session of the previous attempt");
+            driver = DeviceManager.getDriver();
+            return;
+        }
 
         if ("android".equalsIgnoreCase(platform)) {
-            setupAndroidDriver();
+            setupAndroidDriver(resetTier);
         } else if ("ios".equalsIgnoreCase(platform)) {
-            setupIOSDriver();
+            setupIOSDriver(resetTier);
         } else {
             throw new IllegalArgumentException("Invalid platform: " + platform);
         }
 
         driver = DeviceManager.getDriver();
+        prewarmNextDevice(platform);
     }
 
     /**
@@ -81,62 +112,131 @@ public abstract class BaseTest {
      * 
      * @param result The result of the test method
      */
-    @AfterMethod
+    @AfterMethod(alwaysRun = true)
     public void afterMethod(ITestResult result) {
         if (result.getStatus() == ITestResult.FAILURE) {
-            TestUtils.logError("Test failed: " + result.getName());
+            TestUtils.logError("Test failed: {}", result.getName());
+            takeScreenshotOnFailure(result.getName());
+        } else if (result.wasRetried()) {
+            TestUtils.logError("Test failed and will be retried: {}", result.getName());
             takeScreenshotOnFailure(result.getName());
         } else if (result.getStatus() == ITestResult.SUCCESS) {
-            TestUtils.logInfo("Test passed: " + result.getName());
+            TestUtils.logInfo("Test passed: {}", result.getName());
         } else {
-            TestUtils.logInfo("Test skipped: " + result.getName());
+            TestUtils.logInfo("Test skipped: {}", result.getName());
+        }
+        CommandMetrics.attachTestSummary();
+
+        if (result.wasRetried()) {
+            // Keep the session and the device for the retry, which runs next on this thread
+            TestUtils.clearTestContext();
+            return;
         }
 
-        DeviceManager.quitDriver();
+        DeviceManager.releaseDriver();
+        DeviceLeaseManager.releaseDevice();
+        TestUtils.clearTestContext();
     }
 
     /**
      * Teardown operations to be performed after the test suite runs
      */
-    @AfterSuite
+    @AfterSuite(alwaysRun = true)
     public void afterSuite() {
+        DeviceManager.shutdown();
+        stubServers.forEach(StubAppiumServer::stop);
+        stubServers.clear();
+        WaitEngine.writeStatistics();
+        ScreenshotStore.writeManifest();
+        ScreenshotWriter.shutdown();
+        DeviceLeaseManager.logStatistics();
         TestUtils.logInfo("Finished test suite execution");
     }
 
     /**
-     * Setup the Android driver
+     * Start the in-process stub Appium servers (appium.stub.servers, default 1) and point
+     * appium.server.url, or appium.servers if there are several, at them, so that the suite
+     * runs without devices
      */
-    private void setupAndroidDriver() {
-        // Use a device name that exists in capabilities.json
-        String deviceName = "Pixel_4_API_30"; // This device is defined in capabilities.json
+    private static void startStubServer() {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < ConfigReader.getInt("appium.stub.servers", 1); i++) {
+            StubAppiumServer stubServer = new StubAppiumServer().start();
+            stubServers.add(stubServer);
+            urls.add(stubServer.getUrl());
+        }
+        System.setProperty("appium.server.url", urls.get(0));
+        if (urls.size() > 1) {
+            System.setProperty("appium.servers", String.join(",", urls));
+        }
+        // System properties override the configuration file, so reload to pick up the stub URL
+        ConfigReader.initialize();
+    }
 
-        TestUtils.logInfo("Setting up Android driver with deviceName: " + deviceName);
+    /**
+     * Setup the Android driver on a device leased from the devices in capabilities.json
+     * 
+     * @param resetTier The app reset the test needs
+     */
+    private void setupAndroidDriver(AppResetTier resetTier) {
+        String deviceName = DeviceLeaseManager.leaseDevice("android");
+        TestUtils.setDeviceContext(deviceName);
 
-        // Use the new method that gets capabilities from capabilities.json
-        DeviceManager.initializeAndroidDriver(deviceName);
+        TestUtils.logInfo("Setting up Android driver with deviceName: {}", deviceName);
+
+        try {
+            DeviceManager.initializeAndroidDriver(deviceName, resetTier);
+        } catch (RuntimeException e) {
+            DeviceLeaseManager.releaseDevice();
+            throw e;
+        }
     }
 
     /**
-     * Setup the iOS driver
+     * Setup the iOS driver on a device leased from the devices in capabilities.json
+     * 
+     * @param resetTier The app reset the test needs
      */
-    private void setupIOSDriver() {
-        // Get the device name from the configuration or use a default device
-        String deviceName = ConfigReader.getProperty("ios.deviceName", "iPhone 12");
+    private void setupIOSDriver(AppResetTier resetTier) {
+        String deviceName = DeviceLeaseManager.leaseDevice("ios");
+        TestUtils.setDeviceContext(deviceName);
 
-        TestUtils.logInfo("Setting up iOS driver with deviceName: " + deviceName);
+        TestUtils.logInfo("Setting up iOS driver with deviceName: {}", deviceName);
 
-        // Use the new method that gets capabilities from capabilities.json
-        DeviceManager.initializeIOSDriver(deviceName);
+        try {
+            DeviceManager.initializeIOSDriver(deviceName, resetTier);
+        } catch (RuntimeException e) {
+            DeviceLeaseManager.releaseDevice();
+            throw e;
+        }
+    }
+
+    /**
+     * Start creating a session for the device that will be leased next, so that it is
+     * ready by the time the next test needs it
+     * 
+     * @param platform The platform the current test runs on
+     */
+    private void prewarmNextDevice(String platform) {
+        List<String> freeDevices = DeviceLeaseManager.getFreeDevices(platform);
+        if (!freeDevices.isEmpty()) {
+            try {
+                DeviceManager.prewarmDriver(platform, freeDevices.get(0));
+            } catch (RuntimeException e) {
+                TestUtils.logError("Failed to start pre-warming a session", e);
+            }
+        }
     }
 
     /**
-     * Take a screenshot when a test fails and attach it to the Allure report
+     * Take a screenshot when a test fails, save it and attach it to the Allure report.
+     * {@link TestUtils#takeScreenshotForAllure} already attaches the capture, so it is
+     * not attached a second time here.
      * 
      * @param testName The name of the failed test
      */
-    @Attachment(value = "Screenshot on failure", type = "image/png")
-    private byte[] takeScreenshotOnFailure(String testName) {
-        TestUtils.logInfo("Taking screenshot for failed test: " + testName);
-        return TestUtils.takeScreenshotForAllure("Failure_" + testName);
+    private void takeScreenshotOnFailure(String testName) {
+        TestUtils.logInfo("Taking screenshot for failed test: {}", testName);
+        TestUtils.takeScreenshotForAllure("Failure_" + testName);
     }
 }
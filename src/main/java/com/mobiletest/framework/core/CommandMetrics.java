@@ -0,0 +1,189 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.LatencyHistogram;
+import com.mobiletest.framework.utils.TestUtils;
+import io.appium.java_client.MobileCommand;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+import io.qameta.allure.Allure;
+import org.json.JSONObject;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.Response;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CommandMetrics records the latency of every command sent to the Appium server, per
+ * device and per test, from session creation to findElement, click and screenshot.
+ * <p>
+ * Latencies are recorded in lock-free histograms, so parallel test threads do not contend
+ * on a shared lock. Per test they are recorded per invocation, i.e. per test and device,
+ * and every attempt of a retried test is reported on its own. Each invocation's summary is
+ * attached to its Allure result and the totals are written to target/command-latency.json
+ * at the end of the run.
+ */
+public class CommandMetrics {
+
+    private static final Path REPORT_PATH = Paths.get(System.getProperty("user.dir"), "target", "command-latency.json");
+    private static final String NO_TEST = "(no test)";
+
+    private static final Map<String, Map<String, LatencyHistogram>> byDevice = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, LatencyHistogram>> byTest = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, LatencyHistogram>> finishedTests = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+    /**
+     * Check if command latencies are recorded (metrics.commands.enabled, default true)
+     *
+     * @return True if drivers should be created with a timed command executor
+     */
+    public static boolean isEnabled() {
+        return ConfigReader.getBoolean("metrics.commands.enabled", true);
+    }
+
+    /**
+     * Create a command executor for a new session that times every command it sends
+     *
+     * @param serverUrl The Appium server URL
+     * @param deviceName The device the session runs on
+     * @return The timed command executor
+     */
+    public static HttpCommandExecutor executor(URL serverUrl, String deviceName) {
+        return new TimedCommandExecutor(serverUrl, deviceName);
+    }
+
+    /**
+     * Record the latency of one command. The test is taken from the calling thread's context.
+     *
+     * @param deviceName The device the command was sent to
+     * @param command The command name, e.g. findElement
+     * @param nanos The time the command took
+     */
+    public static void record(String deviceName, String command, long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        String invocation = invocation();
+        histogram(byDevice, deviceName, command).record(micros);
+        histogram(byTest, invocation == null ? NO_TEST : invocation, command).record(micros);
+    }
+
+    /**
+     * Attach the command latencies of the current thread's test invocation to its Allure result.
+     * The latencies are moved to the report under the invocation's attempt, so that a retry of
+     * the test starts from empty histograms.
+     */
+    public static void attachTestSummary() {
+        String invocation = invocation();
+        Map<String, LatencyHistogram> commands = invocation == null ? null : byTest.remove(invocation);
+        if (commands == null || commands.isEmpty()) {
+            return;
+        }
+        int attempt = attempts.computeIfAbsent(invocation, k -> new AtomicInteger()).incrementAndGet();
+        finishedTests.put(attempt == 1 ? invocation : invocation + " (attempt " + attempt + ")", commands);
+        Allure.addAttachment("Command latency", "application/json", toJson(commands).toString(2), ".json");
+    }
+
+    /**
+     * Log the slowest commands per device and write all recorded latencies to
+     * target/command-latency.json.
+     */
+    public static void writeReport() {
+        if (byDevice.isEmpty()) {
+            return;
+        }
+        JSONObject devices = new JSONObject();
+        for (Map.Entry<String, Map<String, LatencyHistogram>> device : new TreeMap<>(byDevice).entrySet()) {
+            devices.put(device.getKey(), toJson(device.getValue()));
+            for (Map.Entry<String, LatencyHistogram> command : new TreeMap<>(device.getValue()).entrySet()) {
+                LatencyHistogram histogram = command.getValue();
+                TestUtils.logInfo("Command latency on {} for {} - count: {}, p50: {} ms, p95: {} ms, p99: {} ms, max: {} ms",
+                        device.getKey(), command.getKey(), histogram.getCount(), millis(histogram.percentile(0.50)),
+                        millis(histogram.percentile(0.95)), millis(histogram.percentile(0.99)), millis(histogram.getMax()));
+            }
+        }
+        // Commands of tests whose summary was never attached, e.g. from pre-warming threads, are still reported
+        Map<String, Map<String, LatencyHistogram>> allTests = new TreeMap<>(byTest);
+        allTests.putAll(finishedTests);
+        JSONObject tests = new JSONObject();
+        for (Map.Entry<String, Map<String, LatencyHistogram>> test : allTests.entrySet()) {
+            tests.put(test.getKey(), toJson(test.getValue()));
+        }
+
+        JSONObject report = new JSONObject().put("devices", devices).put("tests", tests);
+        try {
+            Files.createDirectories(REPORT_PATH.getParent());
+            Files.write(REPORT_PATH, report.toString(2).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            TestUtils.logError("Failed to write command latency report", e);
+        }
+    }
+
+    /**
+     * @return The current thread's test and the device it runs on, or null outside of a test
+     */
+    private static String invocation() {
+        String test = TestUtils.getTestContext();
+        if (test == null) {
+            return null;
+        }
+        String device = TestUtils.getDeviceContext();
+        return device == null ? test : test + " on " + device;
+    }
+
+    private static LatencyHistogram histogram(Map<String, Map<String, LatencyHistogram>> index, String key, String command) {
+        return index.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(command, k -> new LatencyHistogram());
+    }
+
+    private static JSONObject toJson(Map<String, LatencyHistogram> commands) {
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(commands).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            json.put(entry.getKey(), new JSONObject()
+                    .put("count", histogram.getCount())
+                    .put("totalMillis", millis(histogram.getTotal()))
+                    .put("p50Millis", millis(histogram.percentile(0.50)))
+                    .put("p95Millis", millis(histogram.percentile(0.95)))
+                    .put("p99Millis", millis(histogram.percentile(0.99)))
+                    .put("maxMillis", millis(histogram.getMax())));
+        }
+        return json;
+    }
+
+    private static double millis(long micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+
+    /**
+     * Sends commands like the regular Appium executor and records how long each one took.
+     */
+    private static class TimedCommandExecutor extends AppiumCommandExecutor {
+        private final String deviceName;
+
+        private TimedCommandExecutor(URL serverUrl, String deviceName) {
+            super(MobileCommand.commandRepository, serverUrl);
+            this.deviceName = deviceName;
+        }
+
+        @Override
+        public Response execute(Command command) throws WebDriverException {
+            long start = System.nanoTime();
+            try {
+                return super.execute(command);
+            } finally {
+                record(deviceName, command.getName(), System.nanoTime() - start);
+            }
+        }
+    }
+}
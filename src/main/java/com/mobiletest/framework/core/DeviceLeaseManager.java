@@ -0,0 +1,209 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.CapabilityManager;
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.TestUtils;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DeviceLeaseManager spreads parallel test threads over every device listed in
+ * capabilities.json. Each test thread leases a free device for the duration of a
+ * test method and returns it afterwards, and gives up waiting for one after the
+ * configured lease timeout. The most recently released device is leased first, so
+ * that a test usually gets a device whose pooled session is still open. Waiting threads
+ * are still served in arrival order: a released device is handed to the thread that has
+ * waited longest, and a thread that just arrived cannot take it first.
+ */
+public class DeviceLeaseManager {
+
+    private static final Map<String, DevicePool> pools = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Lease> currentLease = new ThreadLocal<>();
+
+    /**
+     * Lease a free device for the given platform, blocking until one is available.
+     *
+     * @param platform The platform (android or ios)
+     * @return The name of the leased device
+     */
+    public static String leaseDevice(String platform) {
+        if (currentLease.get() != null) {
+            return currentLease.get().deviceName;
+        }
+
+        DevicePool pool = pools.computeIfAbsent(platform.toLowerCase(), DevicePool::new);
+        Duration timeout = ConfigReader.getDuration("device.lease.timeout", Duration.ofMinutes(10));
+
+        long start = System.nanoTime();
+        String deviceName;
+        try {
+            deviceName = pool.lease(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a " + platform + " device", e);
+        }
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        if (deviceName == null) {
+            TestUtils.logError("No {} device became free within {} seconds", platform, timeout.getSeconds());
+            throw new RuntimeException("Timed out waiting for a " + platform + " device");
+        }
+
+        pool.recordWait(waitMillis);
+        currentLease.set(new Lease(pool, deviceName));
+        TestUtils.logInfo("Leased device {} after waiting {} ms", deviceName, waitMillis);
+        return deviceName;
+    }
+
+    /**
+     * Return the device leased by the current thread, if any.
+     */
+    public static void releaseDevice() {
+        Lease lease = currentLease.get();
+        if (lease != null) {
+            currentLease.remove();
+            lease.pool.release(lease.deviceName);
+            TestUtils.logInfo("Released device {}", lease.deviceName);
+        }
+    }
+
+    /**
+     * Get the device leased by the current thread.
+     *
+     * @return The leased device name, or null if the thread holds no lease
+     */
+    public static String getLeasedDevice() {
+        Lease lease = currentLease.get();
+        return lease == null ? null : lease.deviceName;
+    }
+
+    /**
+     * Get the devices of a platform that are currently free, in the order they will be leased.
+     *
+     * @param platform The platform (android or ios)
+     * @return A snapshot of the free device names
+     */
+    public static List<String> getFreeDevices(String platform) {
+        DevicePool pool = pools.get(platform.toLowerCase());
+        return pool == null ? new ArrayList<>() : pool.freeDevices();
+    }
+
+    /**
+     * Log the lease wait times for every platform used in this run.
+     */
+    public static void logStatistics() {
+        for (DevicePool pool : pools.values()) {
+            long leases = pool.leaseCount.get();
+            long average = leases == 0 ? 0 : pool.totalWaitMillis.get() / leases;
+            TestUtils.logInfo("Device lease statistics for {} - devices: {}, leases: {}, total wait: {} ms, average wait: {} ms, max wait: {} ms",
+                    pool.platform, pool.size, leases, pool.totalWaitMillis.get(), average, pool.maxWaitMillis.get());
+        }
+    }
+
+    /**
+     * The free devices of one platform together with its wait statistics.
+     */
+    private static class DevicePool {
+        private final String platform;
+        private final int size;
+        // Used as a stack: a device released last still has its session in the SessionPool
+        private final Deque<String> freeDevices;
+        // Threads waiting for a device, longest waiting first
+        private final Deque<CompletableFuture<String>> waiters = new ArrayDeque<>();
+        private final AtomicLong leaseCount = new AtomicLong();
+        private final AtomicLong totalWaitMillis = new AtomicLong();
+        private final AtomicLong maxWaitMillis = new AtomicLong();
+
+        private DevicePool(String platform) {
+            List<String> deviceNames = CapabilityManager.getDeviceNames(platform);
+            if (deviceNames.isEmpty()) {
+                throw new RuntimeException("No devices defined in capabilities for platform: " + platform);
+            }
+            this.platform = platform;
+            this.size = deviceNames.size();
+            this.freeDevices = new ArrayDeque<>(deviceNames);
+        }
+
+        /**
+         * Take the most recently released device, or wait in line for one.
+         *
+         * @return The device, or null if none was handed over within the timeout
+         */
+        private String lease(Duration timeout) throws InterruptedException {
+            CompletableFuture<String> handoff;
+            synchronized (this) {
+                if (!freeDevices.isEmpty()) {
+                    return freeDevices.pollFirst();
+                }
+                handoff = new CompletableFuture<>();
+                waiters.addLast(handoff);
+            }
+            try {
+                return handoff.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                synchronized (this) {
+                    if (waiters.remove(handoff)) {
+                        return null;
+                    }
+                }
+                // A device was handed over just as the wait timed out
+                return handoff.join();
+            } catch (InterruptedException e) {
+                synchronized (this) {
+                    if (!waiters.remove(handoff)) {
+                        release(handoff.join());
+                    }
+                }
+                throw e;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Device handoff failed", e.getCause());
+            }
+        }
+
+        /**
+         * Hand a device to the longest waiting thread, or put it on top of the free devices.
+         */
+        private synchronized void release(String deviceName) {
+            CompletableFuture<String> waiter = waiters.pollFirst();
+            if (waiter != null) {
+                waiter.complete(deviceName);
+            } else {
+                freeDevices.addFirst(deviceName);
+            }
+        }
+
+        private synchronized List<String> freeDevices() {
+            return new ArrayList<>(freeDevices);
+        }
+
+        private void recordWait(long waitMillis) {
+            leaseCount.incrementAndGet();
+            totalWaitMillis.addAndGet(waitMillis);
+            maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+        }
+    }
+
+    /**
+     * A device leased by a test thread.
+     */
+    private static class Lease {
+        private final DevicePool pool;
+        private final String deviceName;
+
+        private Lease(DevicePool pool, String deviceName) {
+            this.pool = pool;
+            this.deviceName = deviceName;
+        }
+    }
+}
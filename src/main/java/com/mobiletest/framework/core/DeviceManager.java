@@ -1,17 +1,22 @@
 package com.mobiletest.framework.core;
 
 import com.mobiletest.framework.config.CapabilityManager;
-import com.mobiletest.framework.config.ConfigReader;
 import com.mobiletest.framework.utils.TestUtils;
 import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileCommand;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.ios.IOSDriver;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.HttpCommandExecutor;
 
-import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
 
 /**
  * DeviceManager is responsible for initializing and managing the Appium driver
@@ -20,38 +25,42 @@ import java.util.concurrent.TimeUnit;
 public class DeviceManager {
 
     private static final ThreadLocal<AppiumDriver> driver = new ThreadLocal<>();
-    private static String APPIUM_SERVER_URL;
+    private static final Map<AppiumDriver, Duration> implicitWaits = Collections.synchronizedMap(new WeakHashMap<>());
 
     static {
         // Initialize the CapabilityManager
         CapabilityManager.initialize();
+    }
 
-        // Get the Appium server URL from the configuration
-        APPIUM_SERVER_URL = ConfigReader.getProperty("appium.server.url", "http://localhost:4723/wd/hub");
+    /**
+     * Initialize the Appium driver for Android using a specific device from capabilities.json,
+     * with the app reset to app.reset.default
+     * 
+     * @param deviceName The name of the Android device as defined in capabilities.json
+     * @return The initialized AndroidDriver
+     */
+    public static AndroidDriver initializeAndroidDriver(String deviceName) {
+        return initializeAndroidDriver(deviceName, AppResetTier.getDefault());
     }
 
     /**
      * Initialize the Appium driver for Android using a specific device from capabilities.json
      * 
      * @param deviceName The name of the Android device as defined in capabilities.json
+     * @param resetTier The app reset the test needs; overrides noReset and fullReset
      * @return The initialized AndroidDriver
      */
-    public static AndroidDriver initializeAndroidDriver(String deviceName) {
-        TestUtils.logInfo("Initializing Android driver for device: " + deviceName);
+    public static AndroidDriver initializeAndroidDriver(String deviceName, AppResetTier resetTier) {
+        TestUtils.logInfo("Initializing Android driver for device: {}", deviceName);
 
         // Get capabilities from the CapabilityManager
         DesiredCapabilities capabilities = CapabilityManager.getCapabilities("android", deviceName);
 
-        try {
-            AndroidDriver androidDriver = new AndroidDriver(new URL(APPIUM_SERVER_URL), capabilities);
-            driver.set(androidDriver);
-            androidDriver.manage().timeouts().implicitlyWait(10, TimeUnit.SECONDS);
-            TestUtils.logInfo("Android driver initialized successfully");
-            return androidDriver;
-        } catch (MalformedURLException e) {
-            TestUtils.logError("Failed to initialize Android driver", e);
-            throw new RuntimeException("Failed to initialize Android driver", e);
-        }
+        AndroidDriver androidDriver = acquireSession("android", deviceName, capabilities, resetTier,
+                AndroidDriver.class, () -> createAndroidDriver(capabilities));
+        driver.set(androidDriver);
+        TestUtils.logInfo("Android driver initialized successfully");
+        return androidDriver;
     }
 
     /**
@@ -74,42 +83,43 @@ public class DeviceManager {
         capabilities.setCapability("appPackage", appPackage);
         capabilities.setCapability("appActivity", appActivity);
         capabilities.setCapability("automationName", "UiAutomator2");
-        capabilities.setCapability("noReset", false);
 
-        try {
-            AndroidDriver androidDriver = new AndroidDriver(new URL(APPIUM_SERVER_URL), capabilities);
-            driver.set(androidDriver);
-            androidDriver.manage().timeouts().implicitlyWait(10, TimeUnit.SECONDS);
-            TestUtils.logInfo("Android driver initialized successfully with custom capabilities");
-            return androidDriver;
-        } catch (MalformedURLException e) {
-            TestUtils.logError("Failed to initialize Android driver with custom capabilities", e);
-            throw new RuntimeException("Failed to initialize Android driver", e);
-        }
+        AndroidDriver androidDriver = acquireSession("android", deviceName, capabilities, AppResetTier.getDefault(),
+                AndroidDriver.class, () -> createAndroidDriver(capabilities));
+        driver.set(androidDriver);
+        TestUtils.logInfo("Android driver initialized successfully with custom capabilities");
+        return androidDriver;
     }
 
     /**
-     * Initialize the Appium driver for iOS using a specific device from capabilities.json
+     * Initialize the Appium driver for iOS using a specific device from capabilities.json,
+     * with the app reset to app.reset.default
      * 
      * @param deviceName The name of the iOS device as defined in capabilities.json
      * @return The initialized IOSDriver
      */
     public static IOSDriver initializeIOSDriver(String deviceName) {
-        TestUtils.logInfo("Initializing iOS driver for device: " + deviceName);
+        return initializeIOSDriver(deviceName, AppResetTier.getDefault());
+    }
+
+    /**
+     * Initialize the Appium driver for iOS using a specific device from capabilities.json
+     * 
+     * @param deviceName The name of the iOS device as defined in capabilities.json
+     * @param resetTier The app reset the test needs; overrides noReset and fullReset
+     * @return The initialized IOSDriver
+     */
+    public static IOSDriver initializeIOSDriver(String deviceName, AppResetTier resetTier) {
+        TestUtils.logInfo("Initializing iOS driver for device: {}", deviceName);
 
         // Get capabilities from the CapabilityManager
         DesiredCapabilities capabilities = CapabilityManager.getCapabilities("ios", deviceName);
 
-        try {
-            IOSDriver iosDriver = new IOSDriver(new URL(APPIUM_SERVER_URL), capabilities);
-            driver.set(iosDriver);
-            iosDriver.manage().timeouts().implicitlyWait(10, TimeUnit.SECONDS);
-            TestUtils.logInfo("iOS driver initialized successfully");
-            return iosDriver;
-        } catch (MalformedURLException e) {
-            TestUtils.logError("Failed to initialize iOS driver", e);
-            throw new RuntimeException("Failed to initialize iOS driver", e);
-        }
+        IOSDriver iosDriver = acquireSession("ios", deviceName, capabilities, resetTier,
+                IOSDriver.class, () -> createIOSDriver(capabilities));
+        driver.set(iosDriver);
+        TestUtils.logInfo("iOS driver initialized successfully");
+        return iosDriver;
     }
 
     /**
@@ -129,16 +139,276 @@ public class DeviceManager {
         capabilities.setCapability("platformVersion", platformVersion);
         capabilities.setCapability("bundleId", bundleId);
         capabilities.setCapability("automationName", "XCUITest");
-        capabilities.setCapability("noReset", false);
 
+        IOSDriver iosDriver = acquireSession("ios", deviceName, capabilities, AppResetTier.getDefault(),
+                IOSDriver.class, () -> createIOSDriver(capabilities));
+        driver.set(iosDriver);
+        return iosDriver;
+    }
+
+    /**
+     * Start creating a session for a device from capabilities.json in the background, so that
+     * a later initialize call for the same device picks up a ready driver. The session starts
+     * with the app reset to app.reset.default. If the session installs the app, the install is
+     * recorded in the {@link AppInstallCache} as soon as the session has been created.
+     * Does nothing unless session.prewarm.enabled is set.
+     * 
+     * @param platform The platform (android or ios)
+     * @param deviceName The name of the device as defined in capabilities.json
+     */
+    public static void prewarmDriver(String platform, String deviceName) {
+        if (!SessionPool.isPrewarmEnabled()) {
+            return;
+        }
+
+        DesiredCapabilities capabilities = CapabilityManager.getCapabilities(platform, deviceName);
+        String build = buildOf(capabilities);
+        applyResetTier(capabilities, deviceName, AppResetTier.getDefault());
+        if ("android".equalsIgnoreCase(platform)) {
+            SessionPool.prewarm("android", deviceName, capabilities,
+                    recordingInstall(build, deviceName, capabilities, () -> createAndroidDriver(capabilities)));
+        } else if ("ios".equalsIgnoreCase(platform)) {
+            SessionPool.prewarm("ios", deviceName, capabilities,
+                    recordingInstall(build, deviceName, capabilities, () -> createIOSDriver(capabilities)));
+        } else {
+            throw new IllegalArgumentException("Invalid platform: " + platform);
+        }
+    }
+
+    /**
+     * Acquire a session from the pool with the app reset to the given tier. The app is only
+     * installed if the device does not have the build of the app capability yet; the install
+     * is then recorded in the {@link AppInstallCache}. If a session that skipped the install
+     * fails to start, or runs on a different device than the one the build was installed on,
+     * the recorded install is treated as a cache miss and the app is installed after all.
+     *
+     * @param platform The platform (android or ios)
+     * @param deviceName The device name
+     * @param capabilities The capabilities from capabilities.json or the caller
+     * @param resetTier The app reset the test needs
+     * @param type The expected driver type
+     * @param factory Creates a new session with the capabilities
+     * @return The session
+     */
+    private static <T extends AppiumDriver> T acquireSession(String platform, String deviceName,
+                                                             DesiredCapabilities capabilities, AppResetTier resetTier,
+                                                             Class<T> type, Supplier<T> factory) {
+        Object app = capabilities.getCapability("app");
+        String build = buildOf(capabilities);
+        AppResetTier tier = applyResetTier(capabilities, deviceName, resetTier);
+        String device = installTarget(capabilities, deviceName);
+        String appId = SessionPool.appId(capabilities);
+        if (build == null) {
+            return SessionPool.acquire(platform, deviceName, capabilities, tier, type, factory);
+        }
+        if (capabilities.getCapability("app") != null) {
+            T session = SessionPool.acquire(platform, deviceName, capabilities, tier, type, factory);
+            AppInstallCache.recordInstall(device, appId, build, udidOf(session));
+            return session;
+        }
+
+        T session;
         try {
-            IOSDriver iosDriver = new IOSDriver(new URL(APPIUM_SERVER_URL), capabilities);
-            driver.set(iosDriver);
-            iosDriver.manage().timeouts().implicitlyWait(10, TimeUnit.SECONDS);
+            session = SessionPool.acquire(platform, deviceName, capabilities, tier, type, factory);
+        } catch (RuntimeException e) {
+            // The app may have been removed from the device, e.g. by wiping an emulator
+            TestUtils.logError("Session on device {} failed without installing build {}, installing it: {}",
+                    device, build.substring(0, 12), e.getMessage());
+            return reinstall(platform, deviceName, capabilities, app, build, type, factory);
+        }
+        String installedUdid = AppInstallCache.getInstalledUdid(device, appId);
+        String udid = udidOf(session);
+        if (installedUdid != null && udid != null && !installedUdid.equals(udid)) {
+            TestUtils.logInfo("Device {} is now {} instead of {}, installing build {}",
+                    device, udid, installedUdid, build.substring(0, 12));
+            SessionPool.discard(session);
+            return reinstall(platform, deviceName, capabilities, app, build, type, factory);
+        }
+        return session;
+    }
+
+    /**
+     * Forget the recorded install and acquire a session that installs the app again.
+     */
+    private static <T extends AppiumDriver> T reinstall(String platform, String deviceName,
+                                                        DesiredCapabilities capabilities, Object app, String build,
+                                                        Class<T> type, Supplier<T> factory) {
+        String device = installTarget(capabilities, deviceName);
+        String appId = SessionPool.appId(capabilities);
+        AppInstallCache.forget(device, appId);
+        capabilities.setCapability("app", app);
+        AppResetTier.REINSTALL.applyTo(capabilities);
+        T session = SessionPool.acquire(platform, deviceName, capabilities, AppResetTier.REINSTALL, type, factory);
+        AppInstallCache.recordInstall(device, appId, build, udidOf(session));
+        return session;
+    }
+
+    /**
+     * Override noReset and fullReset for a reset tier. If the device already has the build of
+     * the app capability, the capability is dropped so that the app is not pushed again and a
+     * reinstall becomes a data clear; otherwise the build is installed with a reinstall.
+     *
+     * @param capabilities The capabilities to override
+     * @param deviceName The device name
+     * @param resetTier The app reset the test needs
+     * @return The reset tier to acquire the session with
+     */
+    private static AppResetTier applyResetTier(DesiredCapabilities capabilities, String deviceName,
+                                               AppResetTier resetTier) {
+        String build = buildOf(capabilities);
+        AppResetTier tier = resetTier;
+        if (build != null) {
+            String device = installTarget(capabilities, deviceName);
+            if (AppInstallCache.isInstalled(device, SessionPool.appId(capabilities), build)) {
+                TestUtils.logInfo("Device {} already has build {}, skipping app install", device, build.substring(0, 12));
+                capabilities.setCapability("app", (Object) null);
+                if (tier == AppResetTier.REINSTALL) {
+                    TestUtils.logInfo("Clearing the app data on device {} instead of reinstalling build {}",
+                            device, build.substring(0, 12));
+                    tier = AppResetTier.CLEAR_DATA;
+                }
+            } else {
+                tier = AppResetTier.REINSTALL;
+            }
+        }
+        tier.applyTo(capabilities);
+        return tier;
+    }
+
+    /**
+     * Wrap a session factory so that the install of a build is recorded once the session is
+     * created, if the capabilities still install it after {@link #applyResetTier}. Used for
+     * pre-warmed sessions, which install the app before any test acquires them.
+     *
+     * @param build The build hash of the app capability, or null
+     * @param deviceName The device name
+     * @param capabilities The capabilities the session is created with
+     * @param factory Creates the session
+     * @return The factory to create the session with
+     */
+    private static <T extends AppiumDriver> Supplier<T> recordingInstall(String build, String deviceName,
+                                                                         DesiredCapabilities capabilities,
+                                                                         Supplier<T> factory) {
+        if (build == null || capabilities.getCapability("app") == null) {
+            return factory;
+        }
+        String device = installTarget(capabilities, deviceName);
+        return () -> {
+            T session = factory.get();
+            AppInstallCache.recordInstall(device, SessionPool.appId(capabilities), build, udidOf(session));
+            return session;
+        };
+    }
+
+    /**
+     * @return The build hash of a local app artifact in the app capability, or null if there is
+     *         none or the install cache is disabled
+     */
+    private static String buildOf(DesiredCapabilities capabilities) {
+        Object app = capabilities.getCapability("app");
+        if (app == null || !AppInstallCache.isEnabled()) {
+            return null;
+        }
+        return AppInstallCache.buildOf(app.toString());
+    }
+
+    /**
+     * @return The UDID the session reports for its device, or null if it reports none
+     */
+    private static String udidOf(AppiumDriver session) {
+        Capabilities sessionCapabilities = session.getCapabilities();
+        Object udid = sessionCapabilities.getCapability("udid");
+        if (udid == null) {
+            udid = sessionCapabilities.getCapability("deviceUDID");
+        }
+        return udid == null ? null : udid.toString();
+    }
+
+    /**
+     * @return The UDID of the device if known, otherwise its name
+     */
+    private static String installTarget(DesiredCapabilities capabilities, String deviceName) {
+        Object udid = capabilities.getCapability("udid");
+        return udid != null ? udid.toString() : deviceName;
+    }
+
+    /**
+     * Create a new Android session on an Appium server chosen by the {@link AppiumServerRegistry}
+     * 
+     * @param capabilities The capabilities to create the session with
+     * @return The new AndroidDriver
+     */
+    private static AndroidDriver createAndroidDriver(DesiredCapabilities capabilities) {
+        return AppiumServerRegistry.createSession(deviceName(capabilities), serverUrl -> {
+            AndroidDriver androidDriver = new AndroidDriver(commandExecutor(serverUrl, capabilities), capabilities);
+            // Waiting is done explicitly by the page WaitEngine; an implicit wait would multiply with it
+            setImplicitWait(androidDriver, Duration.ZERO);
+            return androidDriver;
+        });
+    }
+
+    /**
+     * Create a new iOS session on an Appium server chosen by the {@link AppiumServerRegistry}
+     * 
+     * @param capabilities The capabilities to create the session with
+     * @return The new IOSDriver
+     */
+    private static IOSDriver createIOSDriver(DesiredCapabilities capabilities) {
+        return AppiumServerRegistry.createSession(deviceName(capabilities), serverUrl -> {
+            IOSDriver iosDriver = new IOSDriver(commandExecutor(serverUrl, capabilities), capabilities);
+            // Waiting is done explicitly by the page WaitEngine; an implicit wait would multiply with it
+            setImplicitWait(iosDriver, Duration.ZERO);
             return iosDriver;
-        } catch (MalformedURLException e) {
-            throw new RuntimeException("Failed to initialize iOS driver", e);
+        });
+    }
+
+    /**
+     * Create the command executor for a new session. Unless metrics.commands.enabled is
+     * switched off, the executor records the latency of every command per device and test.
+     * 
+     * @param serverUrl The Appium server to create the session on
+     * @param capabilities The capabilities the session is created with
+     * @return The command executor
+     */
+    private static HttpCommandExecutor commandExecutor(URL serverUrl, DesiredCapabilities capabilities) {
+        if (!CommandMetrics.isEnabled()) {
+            return new AppiumCommandExecutor(MobileCommand.commandRepository, serverUrl);
         }
+        return CommandMetrics.executor(serverUrl, deviceName(capabilities));
+    }
+
+    private static String deviceName(DesiredCapabilities capabilities) {
+        return String.valueOf(capabilities.getCapability("deviceName"));
+    }
+
+    /**
+     * Set the implicit wait of a driver and remember it, so that it can be read back
+     * without a round trip to the Appium server
+     * 
+     * @param appiumDriver The driver to configure
+     * @param implicitWait The implicit wait
+     */
+    public static void setImplicitWait(AppiumDriver appiumDriver, Duration implicitWait) {
+        appiumDriver.manage().timeouts().implicitlyWait(implicitWait);
+        implicitWaits.put(appiumDriver, implicitWait);
+    }
+
+    /**
+     * Get the implicit wait of a driver. Only drivers not configured through
+     * {@link #setImplicitWait} are asked for it, once.
+     * 
+     * @param appiumDriver The driver
+     * @return The driver's implicit wait
+     */
+    public static Duration getImplicitWait(AppiumDriver appiumDriver) {
+        Duration implicitWait = implicitWaits.get(appiumDriver);
+        if (implicitWait != null) {
+            return implicitWait;
+        }
+        // Asked outside the map's lock, so that threads using other drivers do not wait for the round trip
+        implicitWait = appiumDriver.manage().timeouts().getImplicitWaitTimeout();
+        Duration known = implicitWaits.putIfAbsent(appiumDriver, implicitWait);
+        return known != null ? known : implicitWait;
     }
 
     /**
@@ -150,13 +420,64 @@ public class DeviceManager {
         return driver.get();
     }
 
+    /**
+     * Use a driver that was created outside of the DeviceManager for the current thread,
+     * e.g. a stub driver in benchmarks. The driver is not pooled.
+     * 
+     * @param appiumDriver The driver page objects on this thread should use
+     */
+    public static void setDriver(AppiumDriver appiumDriver) {
+        driver.set(appiumDriver);
+    }
+
+    /**
+     * Keep using the driver the current thread still holds, e.g. because the previous attempt
+     * of a retried test left it in place. The app is reset to the given tier; if that fails, or
+     * the app has to be reinstalled, the session is quit and a new driver has to be initialized.
+     *
+     * @param resetTier The app reset the next test needs
+     * @return True if the current thread holds a driver that is ready for the next test
+     */
+    public static boolean resumeDriver(AppResetTier resetTier) {
+        AppiumDriver current = driver.get();
+        if (current == null) {
+            return false;
+        }
+        if (SessionPool.resetApp(current, resetTier)) {
+            return true;
+        }
+        quitDriver();
+        return false;
+    }
+
+    /**
+     * Release the driver back to the session pool and clear the ThreadLocal.
+     * The session is kept alive for the next test unless pooling is disabled.
+     */
+    public static void releaseDriver() {
+        if (driver.get() != null) {
+            SessionPool.release(driver.get());
+            driver.remove();
+        }
+    }
+
     /**
      * Quit the driver and clear the ThreadLocal
      */
     public static void quitDriver() {
         if (driver.get() != null) {
-            driver.get().quit();
+            SessionPool.discard(driver.get());
             driver.remove();
         }
     }
+
+    /**
+     * Quit all pooled sessions, stop the Appium server health checks and write the command
+     * latency report. Called once the test suite has finished.
+     */
+    public static void shutdown() {
+        SessionPool.shutdown();
+        AppiumServerRegistry.shutdown();
+        CommandMetrics.writeReport();
+    }
 }
@@ -0,0 +1,40 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.TestUtils;
+import org.testng.IRetryAnalyzer;
+import org.testng.ITestResult;
+
+/**
+ * RetryAnalyzer reruns a failed test method up to test.retry.count times. TestNG keeps one
+ * analyzer per test method and parameter set, so the count covers all attempts of one invocation.
+ * It is assigned to every test method by the {@link RetryListener}.
+ */
+public class RetryAnalyzer implements IRetryAnalyzer {
+
+    private int retries;
+
+    /**
+     * @return The number of times a failed test method is rerun (test.retry.count, default 0)
+     */
+    public static int getMaxRetries() {
+        return ConfigReader.getInt("test.retry.count", 0);
+    }
+
+    @Override
+    public boolean retry(ITestResult result) {
+        if (retries >= getMaxRetries()) {
+            return false;
+        }
+        retries++;
+        TestUtils.logInfo("Retrying {} after failure ({} of {})", result.getName(), retries, getMaxRetries());
+        return true;
+    }
+
+    /**
+     * @return The number of retries granted so far
+     */
+    public int getRetries() {
+        return retries;
+    }
+}
@@ -0,0 +1,165 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.utils.TestUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.IRetryAnalyzer;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RetryListener reports how many tests passed on the first attempt and how many only after a
+ * retry by the {@link RetryAnalyzer}, which the {@link RetryTransformer} assigns.
+ * <p>
+ * Only the failed method is rerun, right after its failure and on the same thread, which lets
+ * {@link BaseTest} hand the still-open session to the retry. TestNG creates a listener instance
+ * per &lt;test&gt; but finishes the suite on only one of them, so the counts are kept per suite.
+ */
+public class RetryListener implements ITestListener, ISuiteListener {
+
+    private static final Path STATISTICS_PATH = Paths.get(System.getProperty("user.dir"), "target", "retry-statistics.json");
+    private static final String STATISTICS_ATTRIBUTE = RetryListener.class.getName() + ".statistics";
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        Statistics statistics = getStatistics(result.getTestContext().getSuite());
+        IRetryAnalyzer analyzer = result.getMethod().getRetryAnalyzer(result);
+        if (analyzer instanceof RetryAnalyzer && ((RetryAnalyzer) analyzer).getRetries() > 0) {
+            statistics.passedAfterRetry.incrementAndGet();
+            statistics.flakyTests.add(testName(result));
+        } else {
+            statistics.passedFirstAttempt.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        Statistics statistics = getStatistics(result.getTestContext().getSuite());
+        statistics.failed.incrementAndGet();
+        statistics.failedTests.add(testName(result));
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        if (result.wasRetried()) {
+            getStatistics(result.getTestContext().getSuite()).retries.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        Statistics statistics = getStatistics(suite);
+        long passed = statistics.getPassedFirstAttempt();
+        long total = passed + statistics.getPassedAfterRetry() + statistics.getFailed();
+        // Only the first finished instance reports
+        if (total == 0 || !statistics.reported.compareAndSet(false, true)) {
+            return;
+        }
+        TestUtils.logInfo("Retry statistics - passed first attempt: {} ({}%), passed after retry: {}, failed: {}, "
+                        + "final pass rate: {}%, retries: {}", passed, percent(passed, total),
+                statistics.getPassedAfterRetry(), statistics.getFailed(),
+                percent(passed + statistics.getPassedAfterRetry(), total), statistics.getRetries());
+        if (!statistics.flakyTests.isEmpty()) {
+            TestUtils.logInfo("Tests that only passed after a retry: {}", statistics.flakyTests);
+        }
+
+        JSONObject json = new JSONObject()
+                .put("passedFirstAttempt", passed)
+                .put("passedAfterRetry", statistics.getPassedAfterRetry())
+                .put("failed", statistics.getFailed())
+                .put("retries", statistics.getRetries())
+                .put("firstAttemptPassRate", percent(passed, total))
+                .put("finalPassRate", percent(passed + statistics.getPassedAfterRetry(), total))
+                .put("flakyTests", new JSONArray(new TreeSet<>(statistics.flakyTests)))
+                .put("failedTests", new JSONArray(new TreeSet<>(statistics.failedTests)));
+        try {
+            Files.createDirectories(STATISTICS_PATH.getParent());
+            Files.write(STATISTICS_PATH, json.toString(2).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            TestUtils.logError("Failed to write retry statistics", e);
+        }
+    }
+
+    /**
+     * Get the retry statistics of a suite, shared by the listener instances of all its &lt;test&gt;s.
+     *
+     * @param suite The suite
+     * @return The statistics collected so far
+     */
+    public static Statistics getStatistics(ISuite suite) {
+        synchronized (suite) {
+            Statistics statistics = (Statistics) suite.getAttribute(STATISTICS_ATTRIBUTE);
+            if (statistics == null) {
+                statistics = new Statistics();
+                suite.setAttribute(STATISTICS_ATTRIBUTE, statistics);
+            }
+            return statistics;
+        }
+    }
+
+    private static String testName(ITestResult result) {
+        return result.getTestContext().getName() + "/" + result.getMethod().getRealClass().getSimpleName()
+                + "." + result.getMethod().getMethodName();
+    }
+
+    private static double percent(long count, long total) {
+        return Math.round(count * 1000.0 / total) / 10.0;
+    }
+
+    /**
+     * The first-attempt passes, passes after a retry, failures and retries of one suite.
+     */
+    public static final class Statistics {
+        private final AtomicLong passedFirstAttempt = new AtomicLong();
+        private final AtomicLong passedAfterRetry = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final Set<String> flakyTests = new ConcurrentSkipListSet<>();
+        private final Set<String> failedTests = new ConcurrentSkipListSet<>();
+        private final AtomicBoolean reported = new AtomicBoolean();
+
+        private Statistics() {
+        }
+
+        /**
+         * @return The number of test invocations that passed on their first attempt
+         */
+        public long getPassedFirstAttempt() {
+            return passedFirstAttempt.get();
+        }
+
+        /**
+         * @return The number of test invocations that failed at first and passed on a retry
+         */
+        public long getPassedAfterRetry() {
+            return passedAfterRetry.get();
+        }
+
+        /**
+         * @return The number of test invocations that still failed after all retries
+         */
+        public long getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * @return The number of retries run
+         */
+        public long getRetries() {
+            return retries.get();
+        }
+    }
+}
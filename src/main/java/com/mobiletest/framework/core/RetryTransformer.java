@@ -0,0 +1,34 @@
+package com.mobiletest.framework.core;
+
+import org.testng.IAnnotationTransformer;
+import org.testng.IRetryAnalyzer;
+import org.testng.annotations.ITestAnnotation;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * RetryTransformer assigns the {@link RetryAnalyzer} to every test method without an analyzer of
+ * its own. TestNG only picks up annotation transformers from testng.xml, the command line or the
+ * surefire listener property, not from {@code @Listeners}.
+ * <p>
+ * The framework's own unit tests (com.mobiletest.framework) are left alone: they do not depend on
+ * devices, so a failure there is a bug and must not be hidden by a passing retry.
+ */
+public class RetryTransformer implements IAnnotationTransformer {
+
+    private static final String FRAMEWORK_PACKAGE = "com.mobiletest.framework.";
+
+    @Override
+    public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor, Method testMethod) {
+        Class<?> declaringClass = testClass != null ? testClass : testMethod != null ? testMethod.getDeclaringClass() : null;
+        if (declaringClass != null && declaringClass.getName().startsWith(FRAMEWORK_PACKAGE)) {
+            return;
+        }
+        Class<? extends IRetryAnalyzer> analyzer = annotation.getRetryAnalyzerClass();
+        // Without an analyzer of its own a method has TestNG's placeholder, which is no test code's
+        if (analyzer == null || analyzer.getName().startsWith("org.testng.")) {
+            annotation.setRetryAnalyzer(RetryAnalyzer.class);
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.TestUtils;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.InteractsWithApps;
+import io.appium.java_client.ios.IOSDriver;
+import org.openqa.selenium.Capabilities;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * SessionPool keeps Appium sessions alive between test methods so that each test
+ * does not pay for a full session creation. Sessions are keyed by platform, device
+ * name and capability set, ignoring the reset capabilities. A released session is handed
+ * out again to the next test asking for the same key, after the cheapest app reset that
+ * satisfies the test's {@link AppResetTier}; a session is only recreated when it is broken,
+ * the requested capabilities changed or the test needs the app reinstalled.
+ * <p>
+ * In pre-warming mode sessions for devices that are about to be used are created on a
+ * dedicated executor while tests are still running, so that acquiring them usually just
+ * picks up a ready driver.
+ */
+public class SessionPool {
+
+    private static final Map<String, ConcurrentLinkedDeque<PooledSession>> idleSessions = new ConcurrentHashMap<>();
+    private static final Map<AppiumDriver, PooledSession> leasedSessions = new ConcurrentHashMap<>();
+    private static final Map<String, PendingSession> pendingSessions = new ConcurrentHashMap<>();
+    private static volatile ExecutorService prewarmExecutor;
+
+    private static final AtomicLong sessionsCreated = new AtomicLong();
+    private static final AtomicLong sessionsReused = new AtomicLong();
+    private static final AtomicLong sessionsDiscarded = new AtomicLong();
+    private static final AtomicLong creationTimeMillis = new AtomicLong();
+    private static final AtomicLong sessionsPrewarmed = new AtomicLong();
+    private static final AtomicLong prewarmCreationTimeMillis = new AtomicLong();
+    private static final AtomicLong prewarmWaitTimeMillis = new AtomicLong();
+    private static final Map<AppResetTier, AtomicLong> resetCounts = new EnumMap<>(AppResetTier.class);
+    private static final Map<AppResetTier, AtomicLong> resetTimeMillis = new EnumMap<>(AppResetTier.class);
+    private static final AtomicLong resetsSkipped = new AtomicLong();
+
+    // Only decide how a session starts; the app is installed and reset per test, so they are not part of the key
+    private static final Set<String> RESET_CAPABILITIES = new HashSet<>(Arrays.asList(
+            "noReset", "fullReset", "app", "appium:noReset", "appium:fullReset", "appium:app"));
+
+    static {
+        for (AppResetTier tier : AppResetTier.values()) {
+            resetCounts.put(tier, new AtomicLong());
+            resetTimeMillis.put(tier, new AtomicLong());
+        }
+    }
+
+    /**
+     * Check if session pooling is enabled in the configuration.
+     *
+     * @return True if sessions should be reused between test methods
+     */
+    public static boolean isEnabled() {
+        return ConfigReader.getBoolean("session.pool.enabled", true);
+    }
+
+    /**
+     * Check if sessions should be created ahead of time on a background executor.
+     *
+     * @return True if pre-warming is enabled
+     */
+    public static boolean isPrewarmEnabled() {
+        return ConfigReader.getBoolean("session.prewarm.enabled", false);
+    }
+
+    /**
+     * Start creating a session in the background so that a later {@link #acquire} for the
+     * same key can pick it up. Nothing is done if an idle or pending session already exists.
+     *
+     * @param platform The platform (android or ios)
+     * @param deviceName The device name
+     * @param capabilities The capabilities the session will be created with
+     * @param factory Creates the new session
+     */
+    public static void prewarm(String platform, String deviceName, Capabilities capabilities,
+                               Supplier<? extends AppiumDriver> factory) {
+        String key = sessionKey(platform, deviceName, capabilities);
+        ConcurrentLinkedDeque<PooledSession> idle = idleSessions.get(key);
+        if (idle != null && !idle.isEmpty()) {
+            return;
+        }
+
+        pendingSessions.computeIfAbsent(key, k -> {
+            TestUtils.logInfo("Pre-warming session for device: {}", deviceName);
+            CompletableFuture<AppiumDriver> future = CompletableFuture.supplyAsync(() -> {
+                long start = System.currentTimeMillis();
+                AppiumDriver created = factory.get();
+                prewarmCreationTimeMillis.addAndGet(System.currentTimeMillis() - start);
+                sessionsCreated.incrementAndGet();
+                sessionsPrewarmed.incrementAndGet();
+                return created;
+            }, prewarmExecutor());
+            return new PendingSession(deviceName, appId(capabilities), AppResetTier.ofNewSession(capabilities), future);
+        });
+    }
+
+    /**
+     * Acquire a session for the given platform, device and capabilities, with the app reset to
+     * the given tier. An idle healthy session with the same key is reused after the cheapest
+     * reset that satisfies the tier; otherwise a new one is created with the factory. Sessions
+     * are never reused for {@link AppResetTier#REINSTALL}, the app is reinstalled by creating
+     * a new session with fullReset.
+     *
+     * @param platform The platform (android or ios)
+     * @param deviceName The device name
+     * @param capabilities The capabilities the session must be created with
+     * @param tier The app reset the calling test needs
+     * @param type The expected driver type
+     * @param factory Creates a new session when none can be reused
+     * @return A session ready to be used by the calling test
+     */
+    public static <T extends AppiumDriver> T acquire(String platform, String deviceName, Capabilities capabilities,
+                                                     AppResetTier tier, Class<T> type, Supplier<T> factory) {
+        String key = sessionKey(platform, deviceName, capabilities);
+
+        if (isEnabled()) {
+            evictStaleSessions(deviceName, key);
+
+            ConcurrentLinkedDeque<PooledSession> idle = idleSessions.get(key);
+            PooledSession pooled;
+            while (idle != null && (pooled = idle.pollFirst()) != null) {
+                if (type.isInstance(pooled.driver) && isHealthy(pooled) && prepare(pooled, tier)) {
+                    sessionsReused.incrementAndGet();
+                    leasedSessions.put(pooled.driver, pooled);
+                    TestUtils.logInfo("Reusing pooled session {} for device: {}", pooled.driver.getSessionId(), deviceName);
+                    return type.cast(pooled.driver);
+                }
+                quitQuietly(pooled);
+            }
+        }
+
+        PendingSession pending = pendingSessions.remove(key);
+        if (pending != null) {
+            T prewarmed = awaitPrewarmed(pending, type);
+            if (prewarmed != null) {
+                PooledSession pooled = new PooledSession(key, deviceName, pending.appId, pending.state, prewarmed);
+                if (prepare(pooled, tier)) {
+                    leasedSessions.put(prewarmed, pooled);
+                    TestUtils.logInfo("Using pre-warmed session {} for device: {}", prewarmed.getSessionId(), deviceName);
+                    return prewarmed;
+                }
+                quitQuietly(pooled);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        T created = factory.get();
+        long elapsed = System.currentTimeMillis() - start;
+        creationTimeMillis.addAndGet(elapsed);
+        sessionsCreated.incrementAndGet();
+        PooledSession pooled = new PooledSession(key, deviceName, appId(capabilities),
+                AppResetTier.ofNewSession(capabilities), created);
+        if (tier == AppResetTier.REINSTALL && pooled.state == AppResetTier.REINSTALL) {
+            // The session creation did the reinstall
+            recordReset(tier, elapsed);
+            pooled.state = AppResetTier.NONE;
+        } else if (!prepare(pooled, tier)) {
+            quitQuietly(pooled);
+            throw new RuntimeException("Failed to reset the app to " + tier + " on device: " + deviceName);
+        }
+        leasedSessions.put(created, pooled);
+        return created;
+    }
+
+    /**
+     * Return a session to the pool once a test method is finished with it. The app is reset
+     * when the session is acquired again, to the tier the next test needs.
+     *
+     * @param driver The driver to release
+     */
+    public static void release(AppiumDriver driver) {
+        PooledSession pooled = leasedSessions.remove(driver);
+        if (pooled == null) {
+            quit(driver);
+            return;
+        }
+
+        if (!isEnabled()) {
+            quitQuietly(pooled);
+            return;
+        }
+
+        idleSessions.computeIfAbsent(pooled.key, k -> new ConcurrentLinkedDeque<>()).addLast(pooled);
+    }
+
+    /**
+     * Reset the app of a session that stays leased, e.g. because the test that failed on it is
+     * retried right away. This saves handing the session back to the pool and acquiring it
+     * again, and keeps the session even when pooling is disabled.
+     *
+     * @param driver The leased driver
+     * @param tier The app reset the next test needs
+     * @return True if the session is ready for the next test, false if it has to be replaced
+     */
+    public static boolean resetApp(AppiumDriver driver, AppResetTier tier) {
+        PooledSession pooled = leasedSessions.get(driver);
+        if (pooled == null || pooled.driver.getSessionId() == null) {
+            return false;
+        }
+        if (!prepare(pooled, tier)) {
+            return false;
+        }
+        sessionsReused.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Quit a session instead of returning it to the pool.
+     *
+     * @param driver The driver to discard
+     */
+    public static void discard(AppiumDriver driver) {
+        PooledSession pooled = leasedSessions.remove(driver);
+        if (pooled != null) {
+            quitQuietly(pooled);
+        } else {
+            quit(driver);
+        }
+    }
+
+    /**
+     * Quit every idle session and log the pool statistics. Sessions still leased
+     * are left to their owning threads.
+     */
+    public static void shutdown() {
+        for (String key : pendingSessions.keySet()) {
+            PendingSession pending = pendingSessions.remove(key);
+            if (pending != null) {
+                pending.future.thenAccept(SessionPool::quitPrewarmed);
+            }
+        }
+        if (prewarmExecutor != null) {
+            prewarmExecutor.shutdown();
+        }
+
+        for (ConcurrentLinkedDeque<PooledSession> idle : idleSessions.values()) {
+            PooledSession pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                quitQuietly(pooled);
+            }
+        }
+        idleSessions.clear();
+        TestUtils.logInfo("Session pool statistics - created: {}, reused: {}, discarded: {}, creation time: {} ms",
+                sessionsCreated.get(), sessionsReused.get(), sessionsDiscarded.get(), creationTimeMillis.get());
+        TestUtils.logInfo("App reset statistics - restart: {} ({} ms), clear data: {} ({} ms), reinstall: {} ({} ms), not needed: {}",
+                resetCounts.get(AppResetTier.RESTART).get(), resetTimeMillis.get(AppResetTier.RESTART).get(),
+                resetCounts.get(AppResetTier.CLEAR_DATA).get(), resetTimeMillis.get(AppResetTier.CLEAR_DATA).get(),
+                resetCounts.get(AppResetTier.REINSTALL).get(), resetTimeMillis.get(AppResetTier.REINSTALL).get(),
+                resetsSkipped.get());
+        if (sessionsPrewarmed.get() > 0) {
+            TestUtils.logInfo("Session pre-warming statistics - pre-warmed: {}, background creation time: {} ms, "
+                    + "time tests waited: {} ms, hidden behind test execution: {} ms",
+                    sessionsPrewarmed.get(), prewarmCreationTimeMillis.get(), prewarmWaitTimeMillis.get(),
+                    getHiddenCreationTimeMillis());
+        }
+    }
+
+    /**
+     * @return The number of sessions created since the JVM started
+     */
+    public static long getSessionsCreated() {
+        return sessionsCreated.get();
+    }
+
+    /**
+     * @return The number of times an idle session was handed out again
+     */
+    public static long getSessionsReused() {
+        return sessionsReused.get();
+    }
+
+    /**
+     * @return The total time spent creating sessions in milliseconds
+     */
+    public static long getCreationTimeMillis() {
+        return creationTimeMillis.get();
+    }
+
+    /**
+     * @return The number of sessions created in the background by pre-warming
+     */
+    public static long getSessionsPrewarmed() {
+        return sessionsPrewarmed.get();
+    }
+
+    /**
+     * @param tier The reset tier
+     * @return The number of app resets done for the tier; reinstalls count the sessions created for them
+     */
+    public static long getResetCount(AppResetTier tier) {
+        return resetCounts.get(tier).get();
+    }
+
+    /**
+     * @param tier The reset tier
+     * @return The total time spent on app resets of the tier in milliseconds
+     */
+    public static long getResetTimeMillis(AppResetTier tier) {
+        return resetTimeMillis.get(tier).get();
+    }
+
+    /**
+     * @return The number of times a test got a session whose app already satisfied its tier
+     */
+    public static long getResetsSkipped() {
+        return resetsSkipped.get();
+    }
+
+    /**
+     * Session creation time that overlapped with test execution, i.e. background creation
+     * time minus the time tests spent blocked waiting for a pre-warmed session.
+     *
+     * @return The hidden creation time in milliseconds
+     */
+    public static long getHiddenCreationTimeMillis() {
+        return Math.max(0, prewarmCreationTimeMillis.get() - prewarmWaitTimeMillis.get());
+    }
+
+    /**
+     * Build the pool key for a platform, device and capability set. Capabilities are
+     * sorted so that the key does not depend on insertion order, and the reset and app
+     * capabilities are left out so that tests needing different app resets share sessions.
+     */
+    static String sessionKey(String platform, String deviceName, Capabilities capabilities) {
+        Map<String, Object> sorted = new TreeMap<>(capabilities.asMap());
+        sorted.keySet().removeAll(RESET_CAPABILITIES);
+        return platform.toLowerCase() + "|" + deviceName + "|" + sorted;
+    }
+
+    /**
+     * A device can only host one session at a time, so idle sessions on the same device
+     * that were created with different capabilities are quit before a new one is requested.
+     */
+    private static void evictStaleSessions(String deviceName, String key) {
+        for (Map.Entry<String, ConcurrentLinkedDeque<PooledSession>> entry : idleSessions.entrySet()) {
+            if (entry.getKey().equals(key)) {
+                continue;
+            }
+            entry.getValue().removeIf(pooled -> {
+                if (pooled.deviceName.equals(deviceName)) {
+                    TestUtils.logInfo("Capabilities changed for device {}, recycling pooled session", deviceName);
+                    quitQuietly(pooled);
+                    return true;
+                }
+                return false;
+            });
+        }
+        for (Map.Entry<String, PendingSession> entry : pendingSessions.entrySet()) {
+            if (!entry.getKey().equals(key) && entry.getValue().deviceName.equals(deviceName)
+                    && pendingSessions.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().future.thenAccept(SessionPool::quitPrewarmed);
+            }
+        }
+    }
+
+    private static ExecutorService prewarmExecutor() {
+        if (prewarmExecutor == null) {
+            synchronized (SessionPool.class) {
+                if (prewarmExecutor == null) {
+                    int threads = ConfigReader.getInt("session.prewarm.threads", 2);
+                    AtomicInteger threadCount = new AtomicInteger();
+                    prewarmExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                        Thread thread = new Thread(runnable, "session-prewarm-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return prewarmExecutor;
+    }
+
+    /**
+     * Wait for a pre-warmed session and record how long the calling test was blocked.
+     *
+     * @return The pre-warmed driver, or null if its creation failed or it has the wrong type
+     */
+    private static <T extends AppiumDriver> T awaitPrewarmed(PendingSession pending, Class<T> type) {
+        long start = System.currentTimeMillis();
+        try {
+            AppiumDriver prewarmed = pending.future.join();
+            if (type.isInstance(prewarmed)) {
+                return type.cast(prewarmed);
+            }
+            quitPrewarmed(prewarmed);
+        } catch (CompletionException | CancellationException e) {
+            TestUtils.logError("Pre-warmed session for device {} failed, creating a new one", pending.deviceName, e);
+        } finally {
+            prewarmWaitTimeMillis.addAndGet(System.currentTimeMillis() - start);
+        }
+        return null;
+    }
+
+    private static void quitPrewarmed(AppiumDriver driver) {
+        sessionsDiscarded.incrementAndGet();
+        try {
+            quit(driver);
+        } catch (RuntimeException e) {
+            TestUtils.logError("Failed to quit pre-warmed session", e);
+        }
+    }
+
+    private static boolean isHealthy(PooledSession pooled) {
+        try {
+            if (pooled.driver.getSessionId() == null) {
+                return false;
+            }
+            if (pooled.appId != null && pooled.driver instanceof InteractsWithApps) {
+                ((InteractsWithApps) pooled.driver).queryAppState(pooled.appId);
+            } else {
+                pooled.driver.getPageSource();
+            }
+            return true;
+        } catch (RuntimeException e) {
+            TestUtils.logInfo("Pooled session for device {} is no longer usable: {}", pooled.deviceName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Bring the app of a session to the tier a test needs with the cheapest reset, or none if its
+     * state already satisfies the tier. The session is handed to the test afterwards, so its app
+     * state no longer satisfies any tier.
+     *
+     * @return False if the app could not be reset and the session has to be replaced
+     */
+    private static boolean prepare(PooledSession pooled, AppResetTier tier) {
+        AppResetTier state = pooled.state;
+        pooled.state = AppResetTier.NONE;
+        if (state.satisfies(tier)) {
+            resetsSkipped.incrementAndGet();
+            return true;
+        }
+        if (tier == AppResetTier.REINSTALL || pooled.appId == null || !(pooled.driver instanceof InteractsWithApps)) {
+            return false;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            InteractsWithApps apps = (InteractsWithApps) pooled.driver;
+            apps.terminateApp(pooled.appId);
+            if (tier == AppResetTier.CLEAR_DATA) {
+                String argument = pooled.driver instanceof IOSDriver ? "bundleId" : "appId";
+                pooled.driver.executeScript("mobile: clearApp", Collections.singletonMap(argument, pooled.appId));
+            }
+            apps.activateApp(pooled.appId);
+        } catch (RuntimeException e) {
+            TestUtils.logError("Failed to reset app to {} on device {}, discarding session", tier, pooled.deviceName, e);
+            return false;
+        }
+        recordReset(tier, System.currentTimeMillis() - start);
+        return true;
+    }
+
+    private static void recordReset(AppResetTier tier, long millis) {
+        resetCounts.get(tier).incrementAndGet();
+        resetTimeMillis.get(tier).addAndGet(millis);
+    }
+
+    private static void quitQuietly(PooledSession pooled) {
+        sessionsDiscarded.incrementAndGet();
+        try {
+            quit(pooled.driver);
+        } catch (RuntimeException e) {
+            TestUtils.logError("Failed to quit session for device: {}", pooled.deviceName, e);
+        }
+    }
+
+    /**
+     * Quit a session and free its slot on the Appium server it was routed to, also if it is already gone.
+     */
+    private static void quit(AppiumDriver driver) {
+        try {
+            driver.quit();
+        } finally {
+            AppiumServerRegistry.sessionEnded(driver);
+        }
+    }
+
+    /**
+     * @return The package name or bundle ID of the app the capabilities launch, or null if there is none
+     */
+    static String appId(Capabilities capabilities) {
+        Object appId = capabilities.getCapability("appPackage");
+        if (appId == null) {
+            appId = capabilities.getCapability("bundleId");
+        }
+        return appId == null ? null : appId.toString();
+    }
+
+    /**
+     * A session that is still being created by the pre-warming executor.
+     */
+    private static class PendingSession {
+        private final String deviceName;
+        private final String appId;
+        private final AppResetTier state;
+        private final CompletableFuture<AppiumDriver> future;
+
+        private PendingSession(String deviceName, String appId, AppResetTier state,
+                               CompletableFuture<AppiumDriver> future) {
+            this.deviceName = deviceName;
+            this.appId = appId;
+            this.state = state;
+            this.future = future;
+        }
+    }
+
+    /**
+     * A session together with the key and app it was created for, and the reset tier its app
+     * state satisfies until a test uses it.
+     */
+    private static class PooledSession {
+        private final String key;
+        private final String deviceName;
+        private final String appId;
+        private final AppiumDriver driver;
+        private volatile AppResetTier state;
+
+        private PooledSession(String key, String deviceName, String appId, AppResetTier state, AppiumDriver driver) {
+            this.key = key;
+            this.deviceName = deviceName;
+            this.appId = appId;
+            this.state = state;
+            this.driver = driver;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.TestUtils;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ShardPlanner splits tests into balanced shards using the durations recorded by previous runs.
+ * <p>
+ * Tests are assigned longest first, each to the shard with the least total duration so far
+ * (longest-processing-time-first bin packing), which keeps the finish times of all shards close.
+ * Tests without a recorded duration are assumed to take the median recorded duration. The plan
+ * depends only on the durations file and the test names, so every CI node computes the same one.
+ */
+public class ShardPlanner {
+
+    private static final long DEFAULT_DURATION_MILLIS = 1000;
+
+    /**
+     * @return The shard this run executes (shard.index, default 0)
+     */
+    public static int getShardIndex() {
+        return ConfigReader.getInt("shard.index", 0);
+    }
+
+    /**
+     * @return The number of shards the suite is split into (shard.total, default 1)
+     */
+    public static int getShardTotal() {
+        return ConfigReader.getInt("shard.total", 1);
+    }
+
+    /**
+     * @return The file holding the durations recorded by previous runs (shard.durations.path)
+     */
+    public static Path getDurationsPath() {
+        return Paths.get(ConfigReader.getProperty("shard.durations.path", "target/test-durations.json"));
+    }
+
+    /**
+     * Read the durations recorded by previous runs.
+     *
+     * @param path The durations file
+     * @return Test durations in milliseconds by test name, empty if there is no file yet
+     */
+    public static Map<String, Long> loadDurations(Path path) {
+        Map<String, Long> durations = new HashMap<>();
+        if (!Files.exists(path)) {
+            return durations;
+        }
+        try {
+            JSONObject json = new JSONObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+            for (String test : json.keySet()) {
+                durations.put(test, json.getLong(test));
+            }
+        } catch (IOException | RuntimeException e) {
+            TestUtils.logError("Failed to read test durations from " + path + ", sharding without them", e);
+        }
+        return durations;
+    }
+
+    /**
+     * Merge the durations measured by this run into the durations file. Tests that did not
+     * run, e.g. because they belong to another shard, keep their recorded duration.
+     *
+     * @param path The durations file
+     * @param measured Test durations in milliseconds measured by this run
+     */
+    public static synchronized void saveDurations(Path path, Map<String, Long> measured) {
+        if (measured.isEmpty()) {
+            return;
+        }
+        Map<String, Long> durations = new TreeMap<>(loadDurations(path));
+        durations.putAll(measured);
+        try {
+            Path absolute = path.toAbsolutePath();
+            Files.createDirectories(absolute.getParent());
+            Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+            Files.write(temporary, new JSONObject(durations).toString(2).getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            TestUtils.logInfo("Recorded durations of {} tests in {}", measured.size(), absolute);
+        } catch (IOException e) {
+            TestUtils.logError("Failed to write test durations to " + path, e);
+        }
+    }
+
+    /**
+     * Split tests into balanced shards.
+     *
+     * @param tests The names of the tests to split
+     * @param durations Recorded test durations in milliseconds by test name
+     * @param total The number of shards
+     * @return The tests of each shard, indexed by shard
+     */
+    public static List<List<String>> plan(Collection<String> tests, Map<String, Long> durations, int total) {
+        if (total < 1) {
+            throw new IllegalArgumentException("shard.total must be at least 1 but was " + total);
+        }
+        long defaultDuration = median(durations.values());
+        List<String> ordered = new ArrayList<>(tests);
+        ordered.sort(Comparator.<String>comparingLong(test -> durations.getOrDefault(test, defaultDuration))
+                .reversed()
+                .thenComparing(Comparator.naturalOrder()));
+
+        List<List<String>> shards = new ArrayList<>();
+        long[] loads = new long[total];
+        for (int i = 0; i < total; i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (String test : ordered) {
+            int lightest = 0;
+            for (int shard = 1; shard < total; shard++) {
+                if (loads[shard] < loads[lightest]) {
+                    lightest = shard;
+                }
+            }
+            shards.get(lightest).add(test);
+            loads[lightest] += durations.getOrDefault(test, defaultDuration);
+        }
+        return shards;
+    }
+
+    private static long median(Collection<Long> values) {
+        if (values.isEmpty()) {
+            return DEFAULT_DURATION_MILLIS;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        sorted.sort(Comparator.naturalOrder());
+        return sorted.get(sorted.size() / 2);
+    }
+}
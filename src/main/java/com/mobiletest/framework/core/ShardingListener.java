@@ -0,0 +1,159 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.utils.TestUtils;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ShardingListener runs only this node's share of the suite and records how long every test
+ * took, so that the next run can balance its shards.
+ * <p>
+ * With -Dshard.total=N, the methods of all &lt;test&gt;s in the suite are split into N shards
+ * by the {@link ShardPlanner} in one plan, so that the shards are balanced across the whole
+ * suite, and only shard -Dshard.index is run. Durations are recorded per &lt;test&gt; and method,
+ * because the same method can take very different times on different platforms, and merged into
+ * shard.durations.path when the suite finishes. A test's duration includes its @BeforeMethod and
+ * @AfterMethod methods, which is where sessions are created and apps are reset.
+ * <p>
+ * TestNG creates a listener instance per &lt;test&gt; but finishes the suite on only one of them,
+ * so the plan and the durations are kept in attributes of the suite rather than in the instance.
+ */
+public class ShardingListener implements IMethodInterceptor, ITestListener, ISuiteListener, IInvokedMethodListener {
+
+    private static final String DURATIONS_ATTRIBUTE = ShardingListener.class.getName() + ".durations";
+    private static final String SHARD_ATTRIBUTE = ShardingListener.class.getName() + ".shard";
+
+    // Time spent in @BeforeMethod methods of the thread's next test, and the test that ran last on the thread
+    private static final ThreadLocal<Long> beforeMethodMillis = ThreadLocal.withInitial(() -> 0L);
+    private static final ThreadLocal<String> lastTest = new ThreadLocal<>();
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        int total = ShardPlanner.getShardTotal();
+        int index = ShardPlanner.getShardIndex();
+        if (total <= 1) {
+            return methods;
+        }
+        if (index < 0 || index >= total) {
+            throw new IllegalArgumentException("shard.index must be between 0 and " + (total - 1) + " but was " + index);
+        }
+
+        Set<String> shard = plannedShard(context.getSuite(), total, index);
+        List<IMethodInstance> selected = new ArrayList<>();
+        for (IMethodInstance method : methods) {
+            if (shard.contains(durationKey(context.getName(), method.getMethod()))) {
+                selected.add(method);
+            }
+        }
+        TestUtils.logInfo("Shard {}/{} of '{}': running {} of {} test methods",
+                index + 1, total, context.getName(), selected.size(), methods.size());
+        return selected;
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        ITestNGMethod invoked = method.getTestMethod();
+        long millis = result.getEndMillis() - result.getStartMillis();
+        if (invoked.isBeforeMethodConfiguration()) {
+            beforeMethodMillis.set(beforeMethodMillis.get() + millis);
+            lastTest.remove();
+        } else if (invoked.isAfterMethodConfiguration() && lastTest.get() != null) {
+            measuredDurations(result.getTestContext().getSuite()).merge(lastTest.get(), millis, Long::sum);
+        }
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        recordDuration(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        recordDuration(result);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        // A failed attempt that is retried is reported as skipped, but took its time on the shard
+        if (result.wasRetried()) {
+            recordDuration(result);
+        } else {
+            beforeMethodMillis.remove();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onFinish(ISuite suite) {
+        // Removed so that the durations are saved once even if several instances are finished
+        Map<String, Long> durations = (Map<String, Long>) suite.removeAttribute(DURATIONS_ATTRIBUTE);
+        if (durations != null) {
+            ShardPlanner.saveDurations(ShardPlanner.getDurationsPath(), durations);
+        }
+    }
+
+    private void recordDuration(ITestResult result) {
+        String key = durationKey(result.getTestContext().getName(), result.getMethod());
+        long millis = result.getEndMillis() - result.getStartMillis() + beforeMethodMillis.get();
+        beforeMethodMillis.remove();
+        lastTest.set(key);
+        // Invocations of the same method, e.g. with a data provider, add up
+        measuredDurations(result.getTestContext().getSuite()).merge(key, millis, Long::sum);
+    }
+
+    /**
+     * Plan the shards of all &lt;test&gt;s of the suite once, against one set of shard loads,
+     * and get the tests of this node's shard.
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<String> plannedShard(ISuite suite, int total, int index) {
+        synchronized (suite) {
+            Set<String> shard = (Set<String>) suite.getAttribute(SHARD_ATTRIBUTE);
+            if (shard == null) {
+                Set<String> tests = new LinkedHashSet<>();
+                for (ITestNGMethod method : suite.getAllMethods()) {
+                    tests.add(durationKey(method.getXmlTest().getName(), method));
+                }
+                Map<String, Long> durations = ShardPlanner.loadDurations(ShardPlanner.getDurationsPath());
+                shard = new HashSet<>(ShardPlanner.plan(tests, durations, total).get(index));
+                suite.setAttribute(SHARD_ATTRIBUTE, shard);
+            }
+            return shard;
+        }
+    }
+
+    /**
+     * @return The durations measured so far by all &lt;test&gt;s of the suite
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> measuredDurations(ISuite suite) {
+        synchronized (suite) {
+            Map<String, Long> durations = (Map<String, Long>) suite.getAttribute(DURATIONS_ATTRIBUTE);
+            if (durations == null) {
+                durations = new ConcurrentHashMap<>();
+                suite.setAttribute(DURATIONS_ATTRIBUTE, durations);
+            }
+            return durations;
+        }
+    }
+
+    private static String durationKey(String testName, ITestNGMethod method) {
+        return testName + "/" + method.getRealClass().getSimpleName() + "." + method.getMethodName();
+    }
+}
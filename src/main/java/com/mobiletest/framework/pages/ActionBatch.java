@@ -0,0 +1,169 @@
+package com.mobiletest.framework.pages;
+
+import com.mobiletest.framework.utils.TestUtils;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.android.AndroidDriver;
+import io.qameta.allure.Allure;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Pause;
+import org.openqa.selenium.interactions.PointerInput;
+import org.openqa.selenium.interactions.Sequence;
+import org.openqa.selenium.remote.RemoteWebElement;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ActionBatch records a sequence of page interactions and submits them in as few
+ * driver commands as the platform allows:
+ * <ul>
+ *     <li>consecutive clicks are sent as one W3C Actions request of element-relative taps</li>
+ *     <li>text entry on Android uses the single "mobile: replaceElementValue" command
+ *     instead of wait, clear and sendKeys</li>
+ * </ul>
+ * Anything the driver does not support falls back to the regular per-step
+ * {@link BasePage} methods. Taps are only repeated one by one if the driver rejected the
+ * Actions request as unsupported; any other failure may have happened after some taps were
+ * dispatched and is rethrown. Each recorded action is still reported as its own Allure step.
+ */
+public class ActionBatch {
+
+    private final BasePage page;
+    private final List<BatchedAction> actions = new ArrayList<>();
+
+    ActionBatch(BasePage page) {
+        this.page = page;
+    }
+
+    /**
+     * Record replacing the text of an element.
+     *
+     * @param element The element to enter text into
+     * @param text The text to enter
+     * @param stepName The name of the Allure step reported for this action
+     * @return This batch for chaining
+     */
+    public ActionBatch type(WebElement element, String text, String stepName) {
+        actions.add(new BatchedAction(element, text, stepName));
+        return this;
+    }
+
+    /**
+     * Record a click on an element.
+     *
+     * @param element The element to click
+     * @param stepName The name of the Allure step reported for this action
+     * @return This batch for chaining
+     */
+    public ActionBatch click(WebElement element, String stepName) {
+        actions.add(new BatchedAction(element, null, stepName));
+        return this;
+    }
+
+    /**
+     * Submit the recorded actions in order.
+     */
+    public void perform() {
+        AppiumDriver driver = page.driver;
+        if (driver == null || actions.isEmpty()) {
+            return; // Do nothing if driver is not initialized
+        }
+        page.invalidateSnapshot();
+
+        // One wait for the screen to be ready instead of one per action
+        page.waitForElementVisible(actions.get(0).element);
+
+        int index = 0;
+        while (index < actions.size()) {
+            BatchedAction action = actions.get(index);
+            if (action.isClick()) {
+                int end = index;
+                while (end < actions.size() && actions.get(end).isClick()) {
+                    end++;
+                }
+                performClicks(driver, actions.subList(index, end));
+                index = end;
+            } else {
+                Allure.step(action.stepName, () -> performType(driver, action));
+                index++;
+            }
+        }
+    }
+
+    private void performType(AppiumDriver driver, BatchedAction action) {
+        if (driver instanceof AndroidDriver) {
+            try {
+                Map<String, Object> args = new HashMap<>();
+                args.put("elementId", unwrap(action.element).getId());
+                args.put("text", action.text);
+                driver.executeScript("mobile: replaceElementValue", args);
+                return;
+            } catch (WebDriverException e) {
+                TestUtils.logInfo("mobile: replaceElementValue not available, typing step by step: {}", e.getMessage());
+            }
+        }
+        page.sendKeys(action.element, action.text);
+    }
+
+    private void performClicks(AppiumDriver driver, List<BatchedAction> clicks) {
+        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+        Sequence taps = new Sequence(finger, 0);
+        for (BatchedAction click : clicks) {
+            taps.addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.fromElement(unwrap(click.element)), 0, 0));
+            taps.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+            taps.addAction(new Pause(finger, Duration.ofMillis(50)));
+            taps.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+        }
+
+        try {
+            driver.perform(Collections.singletonList(taps));
+        } catch (UnsupportedCommandException e) {
+            // Rejected before any tap was dispatched, so nothing is clicked twice
+            TestUtils.logInfo("W3C Actions not available, clicking step by step: {}", e.getMessage());
+            for (BatchedAction click : clicks) {
+                Allure.step(click.stepName, () -> page.click(click.element));
+            }
+            return;
+        }
+        for (BatchedAction click : clicks) {
+            Allure.step(click.stepName);
+        }
+    }
+
+    /**
+     * Get the underlying remote element, resolving cached or lazy element proxies.
+     */
+    private static RemoteWebElement unwrap(WebElement element) {
+        WebElement unwrapped = element;
+        while (unwrapped instanceof WrapsElement) {
+            unwrapped = ((WrapsElement) unwrapped).getWrappedElement();
+        }
+        return (RemoteWebElement) unwrapped;
+    }
+
+    /**
+     * A recorded click (no text) or text entry.
+     */
+    private static class BatchedAction {
+        private final WebElement element;
+        private final String text;
+        private final String stepName;
+
+        private BatchedAction(WebElement element, String text, String stepName) {
+            this.element = element;
+            this.text = text;
+            this.stepName = stepName;
+        }
+
+        private boolean isClick() {
+            return text == null;
+        }
+    }
+}
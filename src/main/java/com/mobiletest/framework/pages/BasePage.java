@@ -1,17 +1,23 @@
 package com.mobiletest.framework.pages;
 
+import com.mobiletest.framework.config.ConfigReader;
 import com.mobiletest.framework.core.DeviceManager;
 import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.pagefactory.AppiumFieldDecorator;
 import io.qameta.allure.Step;
 import org.openqa.selenium.By;
 import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.PageFactory;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import java.lang.reflect.Field;
 import java.time.Duration;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * BasePage is the parent class for all page objects in the framework.
@@ -21,6 +27,9 @@ public abstract class BasePage {
 
     protected AppiumDriver driver;
     protected WebDriverWait wait;
+    private ElementCache elementCache;
+    private final Map<WebElement, PageSnapshot.Locator> snapshotLocators = new IdentityHashMap<>();
+    private PageSnapshot snapshot;
 
     /**
      * Constructor for BasePage
@@ -30,11 +39,96 @@ public abstract class BasePage {
 
         // Skip initialization if driver is null (when running tests directly)
         if (driver != null) {
-            this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
-            PageFactory.initElements(new AppiumFieldDecorator(driver), this);
+            this.wait = new WebDriverWait(driver, WaitEngine.timeoutFor("visible"));
+            // Element lookups do not wait themselves; waiting is done by the WaitEngine
+            AppiumFieldDecorator fieldDecorator = new AppiumFieldDecorator(driver, Duration.ZERO);
+            if (ConfigReader.getBoolean("element.cache.enabled", true)) {
+                // Resolve each element once per page instance instead of on every access
+                this.elementCache = new ElementCache(driver);
+                PageFactory.initElements(elementCache.decorator(fieldDecorator), this);
+            } else {
+                PageFactory.initElements(fieldDecorator, this);
+            }
+            collectSnapshotLocators();
         }
     }
 
+    /**
+     * Remember the locator of every annotated element field, so that snapshot queries can
+     * map an element back to the locator it was declared with.
+     */
+    private void collectSnapshotLocators() {
+        boolean android = driver instanceof AndroidDriver;
+        for (Class<?> type = getClass(); type != BasePage.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!WebElement.class.equals(field.getType())) {
+                    continue;
+                }
+                PageSnapshot.Locator locator = PageSnapshot.Locator.fromField(field, android);
+                if (locator == null) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    snapshotLocators.put((WebElement) field.get(this), locator);
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException("Failed to read page field: " + field.getName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetch the page source once and answer read-only queries (getText, isElementDisplayed,
+     * areAllAbsent) from it until the next action on this page. Use this before verifying
+     * many fields of one screen: each query then costs no round trip.
+     * 
+     * @return The snapshot of the current screen
+     */
+    @Step("Take page snapshot")
+    protected PageSnapshot takeSnapshot() {
+        if (driver == null || wait == null) {
+            return null; // Return null if driver is not initialized
+        }
+        snapshot = PageSnapshot.parse(driver.getPageSource(), driver instanceof AndroidDriver);
+        return snapshot;
+    }
+
+    /**
+     * Discard the current page snapshot, so that queries go to the device again.
+     * Actions on this page do this automatically.
+     */
+    protected void invalidateSnapshot() {
+        snapshot = null;
+    }
+
+    /**
+     * Get the snapshot locator of an element, if a snapshot is active and the element's
+     * locator can be evaluated locally.
+     */
+    private PageSnapshot.Locator snapshotLocator(WebElement element) {
+        return snapshot == null ? null : snapshotLocators.get(element);
+    }
+
+    /**
+     * Forget the elements resolved by this page, so that they are looked up again on next use.
+     * Call this after an action that navigates away from and back to the screen.
+     */
+    protected void invalidateElementCache() {
+        if (elementCache != null) {
+            elementCache.invalidate();
+        }
+    }
+
+    /**
+     * Start recording a batch of actions that is submitted in as few driver commands as possible
+     * 
+     * @return A new, empty action batch for this page
+     */
+    protected ActionBatch batch() {
+        return new ActionBatch(this);
+    }
+
     /**
      * Wait for an element to be visible
      * 
@@ -46,7 +140,7 @@ public abstract class BasePage {
         if (driver == null || wait == null) {
             return null; // Return null if driver is not initialized
         }
-        return wait.until(ExpectedConditions.visibilityOf(element));
+        return WaitEngine.until("visible", () -> element.isDisplayed() ? element : null);
     }
 
     /**
@@ -60,7 +154,7 @@ public abstract class BasePage {
         if (driver == null || wait == null) {
             return null; // Return null if driver is not initialized
         }
-        return wait.until(ExpectedConditions.elementToBeClickable(element));
+        return WaitEngine.until("clickable", () -> element.isDisplayed() && element.isEnabled() ? element : null);
     }
 
     /**
@@ -73,6 +167,7 @@ public abstract class BasePage {
         if (driver == null || wait == null) {
             return; // Do nothing if driver is not initialized
         }
+        invalidateSnapshot();
         waitForElementClickable(element).click();
     }
 
@@ -87,12 +182,13 @@ public abstract class BasePage {
         if (driver == null || wait == null) {
             return; // Do nothing if driver is not initialized
         }
+        invalidateSnapshot();
         waitForElementVisible(element).clear();
         element.sendKeys(text);
     }
 
     /**
-     * Get text from an element
+     * Get text from an element. While a page snapshot is active the text is read from it.
      * 
      * @param element The element to get text from
      * @return The text of the element
@@ -102,11 +198,17 @@ public abstract class BasePage {
         if (driver == null || wait == null) {
             return ""; // Return empty string if driver is not initialized
         }
+        PageSnapshot.Locator locator = snapshotLocator(element);
+        if (locator != null) {
+            return snapshot.getText(locator);
+        }
         return waitForElementVisible(element).getText();
     }
 
     /**
-     * Check if an element is displayed
+     * Check if an element is displayed. The check does not wait: it costs one round trip,
+     * so asserting that an element is absent returns in milliseconds. While a page snapshot
+     * is active it costs no round trip at all.
      * 
      * @param element The element to check
      * @return True if the element is displayed, false otherwise
@@ -116,10 +218,107 @@ public abstract class BasePage {
         if (driver == null || wait == null) {
             return false; // Return false if driver is not initialized
         }
+        PageSnapshot.Locator locator = snapshotLocator(element);
+        if (locator != null) {
+            return snapshot.isDisplayed(locator);
+        }
+        return withZeroImplicitWait(() -> {
+            try {
+                return element.isDisplayed();
+            } catch (NoSuchElementException | StaleElementReferenceException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Check if an element matching a locator is present, without waiting for it
+     * 
+     * @param locator The locator of the element
+     * @return True if at least one element matches, false otherwise
+     */
+    @Step("Check if element is present: {0}")
+    protected boolean isElementPresent(By locator) {
+        if (driver == null || wait == null) {
+            return false; // Return false if driver is not initialized
+        }
+        return withZeroImplicitWait(() -> !driver.findElements(locator).isEmpty());
+    }
+
+    /**
+     * Check that none of the given elements is displayed, using a single page source snapshot
+     * instead of one lookup per element. Each identifier is looked up as a resource id and as an
+     * accessibility id; elements that are in the view hierarchy but hidden count as absent.
+     * The active page snapshot is used if there is one.
+     * 
+     * @param identifiers Resource ids or accessibility ids that must not be displayed
+     * @return True if no element with one of the identifiers is displayed, false otherwise
+     */
+    @Step("Check that elements are absent: {0}")
+    protected boolean areAllAbsent(String... identifiers) {
+        if (driver == null || wait == null) {
+            return true; // Nothing is on screen if driver is not initialized
+        }
+        PageSnapshot page = snapshot != null ? snapshot
+                : PageSnapshot.parse(driver.getPageSource(), driver instanceof AndroidDriver);
+        for (String identifier : identifiers) {
+            if (page.isAnyDisplayed(PageSnapshot.Locator.of(PageSnapshot.Locator.Strategy.ID, identifier))
+                    || page.isAnyDisplayed(PageSnapshot.Locator.of(PageSnapshot.Locator.Strategy.ACCESSIBILITY_ID, identifier))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that none of the given element fields is displayed, using a single page source snapshot
+     * and the locators the fields are annotated with. Elements whose locator cannot be evaluated
+     * on the page source are checked one by one with {@link #isElementDisplayed(WebElement)}.
+     *
+     * @param elements Element fields of this page that must not be displayed
+     * @return True if none of the elements is displayed, false otherwise
+     */
+    @Step("Check that elements are absent")
+    protected boolean areAllAbsent(WebElement... elements) {
+        if (driver == null || wait == null) {
+            return true; // Nothing is on screen if driver is not initialized
+        }
+        PageSnapshot page = snapshot;
+        for (WebElement element : elements) {
+            PageSnapshot.Locator locator = snapshotLocators.get(element);
+            if (locator == null) {
+                if (isElementDisplayed(element)) {
+                    return false;
+                }
+                continue;
+            }
+            if (page == null) {
+                page = PageSnapshot.parse(driver.getPageSource(), driver instanceof AndroidDriver);
+            }
+            if (page.isAnyDisplayed(locator)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Run a check with the driver's implicit wait disabled, restoring it afterwards.
+     * Drivers created by the DeviceManager have no implicit wait, so usually nothing is changed.
+     * 
+     * @param check The check to run
+     * @return The result of the check
+     */
+    protected <T> T withZeroImplicitWait(Supplier<T> check) {
+        Duration implicitWait = DeviceManager.getImplicitWait(driver);
+        if (implicitWait.isZero()) {
+            return check.get();
+        }
+        DeviceManager.setImplicitWait(driver, Duration.ZERO);
         try {
-            return element.isDisplayed();
-        } catch (NoSuchElementException e) {
-            return false;
+            return check.get();
+        } finally {
+            DeviceManager.setImplicitWait(driver, implicitWait);
         }
     }
 
@@ -133,6 +332,7 @@ public abstract class BasePage {
      */
     @Step("Swipe from ({0},{1}) to ({2},{3})")
     protected void swipe(int startX, int startY, int endX, int endY) {
+        invalidateSnapshot();
         // Implementation will depend on the Appium version and platform
         // This is a placeholder for the swipe functionality
     }
@@ -0,0 +1,156 @@
+package com.mobiletest.framework.pages;
+
+import com.mobiletest.framework.utils.TestUtils;
+import io.appium.java_client.pagefactory.AppiumFieldDecorator;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.RemoteWebElement;
+import org.openqa.selenium.support.pagefactory.FieldDecorator;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ElementCache remembers the element IDs resolved for the fields of one page instance.
+ * <p>
+ * The lazy proxies created by {@link AppiumFieldDecorator} issue a remote findElement on
+ * every access. Fields decorated through {@link #decorator} are looked up once instead;
+ * later accesses reuse the remembered element ID. If the remembered element has gone
+ * stale it is transparently looked up again, and {@link #invalidate()} forgets all
+ * elements after navigating away.
+ */
+class ElementCache {
+
+    private static final AtomicLong lookups = new AtomicLong();
+    private static final AtomicLong hits = new AtomicLong();
+
+    private final RemoteWebDriver driver;
+    private final Map<String, RemoteWebElement> resolvedElements = new ConcurrentHashMap<>();
+
+    ElementCache(RemoteWebDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Create a field decorator that wraps the single-element fields produced by the
+     * Appium decorator with cached element proxies. Lists and widgets are left as they are.
+     *
+     * @param delegate The Appium field decorator building the locators from annotations
+     * @return The caching field decorator
+     */
+    FieldDecorator decorator(AppiumFieldDecorator delegate) {
+        return (loader, field) -> {
+            Object decorated = delegate.decorate(loader, field);
+            if (decorated instanceof RemoteWebElement && WebElement.class.equals(field.getType())) {
+                return cachedProxy(loader, field, (RemoteWebElement) decorated);
+            }
+            return decorated;
+        };
+    }
+
+    /**
+     * Forget all resolved elements, e.g. after an action navigated to another screen.
+     */
+    void invalidate() {
+        resolvedElements.clear();
+    }
+
+    /**
+     * @return The number of remote lookups performed for cached fields since the JVM started
+     */
+    static long getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * @return The number of field accesses answered from a remembered element ID
+     */
+    static long getHits() {
+        return hits.get();
+    }
+
+    private WebElement cachedProxy(ClassLoader loader, Field field, RemoteWebElement lazyElement) {
+        String name = field.getDeclaringClass().getSimpleName() + "." + field.getName();
+        InvocationHandler handler = new CachedElementHandler(name, lazyElement);
+        return (WebElement) Proxy.newProxyInstance(loader, new Class<?>[]{WebElement.class, WrapsElement.class}, handler);
+    }
+
+    /**
+     * Resolve an element through its lazy Appium proxy and remember its ID. Calling getId
+     * on the lazy proxy performs exactly one remote findElement.
+     */
+    private RemoteWebElement resolve(String name, RemoteWebElement lazyElement) {
+        return resolvedElements.computeIfAbsent(name, key -> {
+            lookups.incrementAndGet();
+            RemoteWebElement element = new RemoteWebElement();
+            element.setParent(driver);
+            // sendKeys passes the keys through the file detector, so it must be set like on found elements
+            element.setFileDetector(driver.getFileDetector());
+            element.setId(lazyElement.getId());
+            return element;
+        });
+    }
+
+    /**
+     * Forwards WebElement calls to the remembered element, looking it up again once if it went stale.
+     */
+    private class CachedElementHandler implements InvocationHandler {
+        private final String name;
+        private final RemoteWebElement lazyElement;
+
+        private CachedElementHandler(String name, RemoteWebElement lazyElement) {
+            this.name = name;
+            this.lazyElement = lazyElement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("toString".equals(method.getName()) && method.getParameterCount() == 0) {
+                return "Cached element " + name;
+            }
+            if ("equals".equals(method.getName()) && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(method.getName()) && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+
+            boolean cached = resolvedElements.containsKey(name);
+            RemoteWebElement element = resolve(name, lazyElement);
+            if (WrapsElement.class.equals(method.getDeclaringClass())) {
+                return element;
+            }
+
+            try {
+                Object result = method.invoke(element, args);
+                if (cached) {
+                    hits.incrementAndGet();
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                boolean gone = cause instanceof StaleElementReferenceException || cause instanceof NoSuchElementException;
+                if (!cached || !gone) {
+                    throw cause;
+                }
+            }
+
+            TestUtils.logInfo("Cached element {} went stale, looking it up again", name);
+            resolvedElements.remove(name, element);
+            try {
+                return method.invoke(resolve(name, lazyElement), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
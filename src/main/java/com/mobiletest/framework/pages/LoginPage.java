@@ -62,16 +62,19 @@ public class LoginPage extends BasePage {
     }
     
     /**
-     * Login with the specified username and password
+     * Login with the specified username and password.
+     * The form is filled and submitted as one action batch to save round trips.
      * 
      * @param username The username to enter
      * @param password The password to enter
      */
     @Step("Login with username: {0}")
     public void login(String username, String password) {
-        enterUsername(username);
-        enterPassword(password);
-        clickLoginButton();
+        batch()
+            .type(usernameInput, username, "Enter username: " + username)
+            .type(passwordInput, password, "Enter password")
+            .click(loginButton, "Click login button")
+            .perform();
     }
     
     /**
@@ -93,4 +96,15 @@ public class LoginPage extends BasePage {
     public boolean isErrorMessageDisplayed() {
         return isElementDisplayed(errorMessage);
     }
+    
+    /**
+     * Check that no error message is displayed. Returns in one round trip
+     * when the error message is absent, which is the expected case after a valid login.
+     * 
+     * @return True if no error message is on the screen, false otherwise
+     */
+    @Step("Check that no error message is displayed")
+    public boolean isErrorMessageAbsent() {
+        return areAllAbsent(errorMessage);
+    }
 }
\ No newline at end of file
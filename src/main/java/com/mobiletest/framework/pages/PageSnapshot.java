@@ -0,0 +1,284 @@
+package com.mobiletest.framework.pages;
+
+import io.appium.java_client.pagefactory.AndroidFindBy;
+import io.appium.java_client.pagefactory.iOSXCUITFindBy;
+import org.openqa.selenium.NoSuchElementException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PageSnapshot is an in-memory index of one page source. It answers read-only queries
+ * (text, visibility, presence) for many locators locally, so verifying a screen with many
+ * fields costs one getPageSource round trip instead of one findElement per field.
+ * <p>
+ * Elements are indexed by resource id, accessibility id and text; XPath and class name
+ * locators are evaluated against the parsed document.
+ */
+public class PageSnapshot {
+
+    private final String source;
+    private final boolean android;
+    private final Document document;
+    private final Map<String, List<Element>> byId = new HashMap<>();
+    private final Map<String, List<Element>> byAccessibilityId = new HashMap<>();
+    private final Map<String, List<Element>> byText = new HashMap<>();
+    private final Map<String, List<Element>> byClassName = new HashMap<>();
+
+    private PageSnapshot(String source, boolean android, Document document) {
+        this.source = source;
+        this.android = android;
+        this.document = document;
+        NodeList elements = document.getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            index((Element) elements.item(i));
+        }
+    }
+
+    /**
+     * Parse a page source into a snapshot.
+     *
+     * @param source The page source returned by the driver
+     * @param android True for UiAutomator2 sources, false for XCUITest sources
+     * @return The indexed snapshot
+     */
+    public static PageSnapshot parse(String source, boolean android) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(source)));
+            return new PageSnapshot(source, android, document);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Failed to parse page source", e);
+        }
+    }
+
+    /**
+     * @return The raw page source the snapshot was built from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Find the first element matching a locator.
+     *
+     * @param locator The locator
+     * @return The matching element, or null if there is none
+     */
+    public Element find(Locator locator) {
+        List<Element> matches = findAll(locator);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    /**
+     * Find all elements matching a locator, in document order.
+     *
+     * @param locator The locator
+     * @return The matching elements
+     */
+    public List<Element> findAll(Locator locator) {
+        switch (locator.strategy) {
+            case ID:
+                if (android && !locator.value.contains(":id/")) {
+                    // UiAutomator2 resolves a bare id against the app package
+                    return byId.getOrDefault(":id/" + locator.value, Collections.emptyList());
+                }
+                return byId.getOrDefault(locator.value, Collections.emptyList());
+            case ACCESSIBILITY_ID:
+                return byAccessibilityId.getOrDefault(locator.value, Collections.emptyList());
+            case TEXT:
+                return byText.getOrDefault(locator.value, Collections.emptyList());
+            case CLASS_NAME:
+                return byClassName.getOrDefault(locator.value, Collections.emptyList());
+            case XPATH:
+                return evaluateXPath(locator.value);
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Check if an element matching a locator is displayed.
+     *
+     * @param locator The locator
+     * @return True if a matching element exists and is displayed
+     */
+    public boolean isDisplayed(Locator locator) {
+        Element element = find(locator);
+        return element != null && isDisplayed(element);
+    }
+
+    /**
+     * Check if any element matching a locator is displayed, e.g. to check that an element is
+     * absent while a hidden copy of it is still in the view hierarchy.
+     *
+     * @param locator The locator
+     * @return True if at least one matching element is displayed
+     */
+    public boolean isAnyDisplayed(Locator locator) {
+        for (Element element : findAll(locator)) {
+            if (isDisplayed(element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the text of the element matching a locator.
+     *
+     * @param locator The locator
+     * @return The element text
+     * @throws NoSuchElementException If no element matches
+     */
+    public String getText(Locator locator) {
+        Element element = find(locator);
+        if (element == null) {
+            throw new NoSuchElementException("No element matching " + locator + " in page snapshot");
+        }
+        if (android) {
+            return element.getAttribute("text");
+        }
+        String value = element.getAttribute("value");
+        return value.isEmpty() ? element.getAttribute("label") : value;
+    }
+
+    private boolean isDisplayed(Element element) {
+        String displayed = element.getAttribute(android ? "displayed" : "visible");
+        // Sources without the attribute only contain elements on screen
+        return displayed.isEmpty() || Boolean.parseBoolean(displayed);
+    }
+
+    private void index(Element element) {
+        if (android) {
+            add(byId, element.getAttribute("resource-id"), element);
+            add(byAccessibilityId, element.getAttribute("content-desc"), element);
+            add(byText, element.getAttribute("text"), element);
+            add(byClassName, element.hasAttribute("class") ? element.getAttribute("class") : element.getTagName(), element);
+            String resourceId = element.getAttribute("resource-id");
+            int idStart = resourceId.indexOf(":id/");
+            if (idStart >= 0) {
+                add(byId, resourceId.substring(idStart), element);
+            }
+        } else {
+            add(byId, element.getAttribute("name"), element);
+            add(byAccessibilityId, element.getAttribute("name"), element);
+            add(byText, element.getAttribute("label"), element);
+            add(byText, element.getAttribute("value"), element);
+            add(byClassName, element.hasAttribute("type") ? element.getAttribute("type") : element.getTagName(), element);
+        }
+    }
+
+    private static void add(Map<String, List<Element>> index, String key, Element element) {
+        if (key != null && !key.isEmpty()) {
+            index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(element);
+        }
+    }
+
+    private List<Element> evaluateXPath(String expression) {
+        try {
+            NodeList nodes = (NodeList) XPathFactory.newInstance().newXPath()
+                    .evaluate(expression, document, XPathConstants.NODESET);
+            List<Element> elements = new ArrayList<>(nodes.getLength());
+            for (int i = 0; i < nodes.getLength(); i++) {
+                if (nodes.item(i) instanceof Element) {
+                    elements.add((Element) nodes.item(i));
+                }
+            }
+            return elements;
+        } catch (XPathExpressionException e) {
+            throw new IllegalArgumentException("Invalid XPath: " + expression, e);
+        }
+    }
+
+    /**
+     * A locator that can be evaluated against a snapshot.
+     */
+    public static final class Locator {
+
+        /**
+         * The locator strategies supported by snapshots.
+         */
+        public enum Strategy {
+            ID, ACCESSIBILITY_ID, TEXT, CLASS_NAME, XPATH
+        }
+
+        private final Strategy strategy;
+        private final String value;
+
+        private Locator(Strategy strategy, String value) {
+            this.strategy = strategy;
+            this.value = value;
+        }
+
+        /**
+         * Create a locator.
+         *
+         * @param strategy The locator strategy
+         * @param value The value to match
+         * @return The locator
+         */
+        public static Locator of(Strategy strategy, String value) {
+            return new Locator(strategy, value);
+        }
+
+        /**
+         * Build the snapshot locator of a page object field from its Appium annotations.
+         *
+         * @param field The page object field
+         * @param android True to read @AndroidFindBy, false to read @iOSXCUITFindBy
+         * @return The locator, or null if the field has no locator that snapshots support
+         */
+        static Locator fromField(Field field, boolean android) {
+            if (android) {
+                AndroidFindBy findBy = field.getAnnotation(AndroidFindBy.class);
+                if (findBy == null) {
+                    return null;
+                }
+                return firstNonEmpty(findBy.id(), findBy.accessibility(), findBy.xpath(), findBy.className());
+            }
+            iOSXCUITFindBy findBy = field.getAnnotation(iOSXCUITFindBy.class);
+            if (findBy == null) {
+                return null;
+            }
+            return firstNonEmpty(findBy.id(), findBy.accessibility(), findBy.xpath(), findBy.className());
+        }
+
+        private static Locator firstNonEmpty(String id, String accessibility, String xpath, String className) {
+            if (!id.isEmpty()) {
+                return new Locator(Strategy.ID, id);
+            }
+            if (!accessibility.isEmpty()) {
+                return new Locator(Strategy.ACCESSIBILITY_ID, accessibility);
+            }
+            if (!xpath.isEmpty()) {
+                return new Locator(Strategy.XPATH, xpath);
+            }
+            if (!className.isEmpty()) {
+                return new Locator(Strategy.CLASS_NAME, className);
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return strategy + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.mobiletest.framework.pages;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.TestUtils;
+import org.json.JSONObject;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * WaitEngine polls a condition until it holds, starting with fast polls and growing the
+ * interval on every miss. It is meant to be used with implicit waits disabled, so that
+ * each poll costs one round trip and never multiplies with a driver-side wait.
+ * <p>
+ * Timeouts are configured per condition as wait.timeout.&lt;condition&gt; and default to a
+ * third of test.timeout. Every wait is recorded per condition so timeouts and polling can
+ * be tuned from the statistics written at the end of the run.
+ */
+public class WaitEngine {
+
+    private static final Path STATISTICS_PATH = Paths.get(System.getProperty("user.dir"), "target", "wait-statistics.json");
+    private static final Map<String, WaitStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * Get the timeout for a named condition.
+     *
+     * @param condition The condition name, e.g. visible or clickable
+     * @return The configured timeout, or a third of test.timeout if none is configured
+     */
+    public static Duration timeoutFor(String condition) {
+        Duration testTimeout = ConfigReader.getDuration("test.timeout", Duration.ofSeconds(30));
+        return ConfigReader.getDuration("wait.timeout." + condition, testTimeout.dividedBy(3));
+    }
+
+    /**
+     * Wait until a condition returns a non-null value other than Boolean.FALSE, using the
+     * configured timeout for the condition.
+     *
+     * @param condition The condition name, used for its timeout and statistics
+     * @param check The condition to poll
+     * @return The value returned by the condition
+     * @throws TimeoutException If the condition does not hold within the timeout
+     */
+    public static <T> T until(String condition, Supplier<T> check) {
+        return until(condition, check, timeoutFor(condition));
+    }
+
+    /**
+     * Wait until a condition returns a non-null value other than Boolean.FALSE.
+     * Element lookups that fail or go stale while polling count as a miss.
+     *
+     * @param condition The condition name, used for statistics
+     * @param check The condition to poll
+     * @param timeout The maximum time to wait
+     * @return The value returned by the condition
+     * @throws TimeoutException If the condition does not hold within the timeout
+     */
+    public static <T> T until(String condition, Supplier<T> check, Duration timeout) {
+        long initialPoll = ConfigReader.getDuration("wait.poll.initial", Duration.ofMillis(50)).toMillis();
+        long maxPoll = ConfigReader.getDuration("wait.poll.max", Duration.ofSeconds(1)).toMillis();
+
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        long poll = initialPoll;
+        int attempts = 0;
+        RuntimeException lastError = null;
+
+        while (true) {
+            attempts++;
+            try {
+                T value = check.get();
+                if (value != null && !Boolean.FALSE.equals(value)) {
+                    record(condition, start, attempts, false);
+                    return value;
+                }
+            } catch (NotFoundException | StaleElementReferenceException e) {
+                lastError = e;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                record(condition, start, attempts, true);
+                throw new TimeoutException("Condition '" + condition + "' not met after " + timeout.toMillis()
+                        + " ms (" + attempts + " attempts)", lastError);
+            }
+
+            sleep(Math.min(poll, Duration.ofNanos(remaining).toMillis() + 1));
+            // Double the interval on every miss, so short waits are answered quickly and long
+            // waits do not flood the device with requests
+            poll = Math.min(poll * 2, maxPoll);
+        }
+    }
+
+    /**
+     * Log the recorded wait statistics and write them to target/wait-statistics.json.
+     */
+    public static void writeStatistics() {
+        if (statistics.isEmpty()) {
+            return;
+        }
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, WaitStatistics> entry : new TreeMap<>(statistics).entrySet()) {
+            WaitStatistics stats = entry.getValue();
+            long count = stats.count.get();
+            json.put(entry.getKey(), new JSONObject()
+                    .put("count", count)
+                    .put("timeouts", stats.timeouts.get())
+                    .put("attempts", stats.attempts.get())
+                    .put("totalMillis", stats.totalMillis.get())
+                    .put("averageMillis", count == 0 ? 0 : stats.totalMillis.get() / count)
+                    .put("maxMillis", stats.maxMillis.get())
+                    .put("timeoutMillis", timeoutFor(entry.getKey()).toMillis()));
+            TestUtils.logInfo("Wait statistics for '{}' - count: {}, timeouts: {}, average: {} ms, max: {} ms",
+                    entry.getKey(), count, stats.timeouts.get(), count == 0 ? 0 : stats.totalMillis.get() / count,
+                    stats.maxMillis.get());
+        }
+        try {
+            Files.createDirectories(STATISTICS_PATH.getParent());
+            Files.write(STATISTICS_PATH, json.toString(2).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            TestUtils.logError("Failed to write wait statistics", e);
+        }
+    }
+
+    private static void record(String condition, long start, int attempts, boolean timedOut) {
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        WaitStatistics stats = statistics.computeIfAbsent(condition, k -> new WaitStatistics());
+        stats.count.incrementAndGet();
+        stats.attempts.addAndGet(attempts);
+        stats.totalMillis.addAndGet(elapsedMillis);
+        stats.maxMillis.accumulateAndGet(elapsedMillis, Math::max);
+        if (timedOut) {
+            stats.timeouts.incrementAndGet();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted while waiting", e);
+        }
+    }
+
+    /**
+     * Aggregated wait times of one condition.
+     */
+    private static class WaitStatistics {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong attempts = new AtomicLong();
+        private final AtomicLong totalMillis = new AtomicLong();
+        private final AtomicLong maxMillis = new AtomicLong();
+    }
+}
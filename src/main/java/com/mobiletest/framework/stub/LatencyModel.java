@@ -0,0 +1,93 @@
+package com.mobiletest.framework.stub;
+
+import com.mobiletest.framework.config.ConfigReader;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * LatencyModel decides how long the stub server takes to answer a command. Latencies are
+ * configured per command as stub.latency.&lt;command&gt;, falling back to stub.latency:
+ * <ul>
+ *     <li>{@code 50ms} - a fixed latency</li>
+ *     <li>{@code uniform:20ms..80ms} - uniformly distributed between two bounds</li>
+ *     <li>{@code lognormal:40ms..400ms} - log-normally distributed with the given median and
+ *     99th percentile, which resembles the long tail of real devices</li>
+ * </ul>
+ * Commands are e.g. newSession, findElement, click, sendKeys, getText, getPageSource,
+ * screenshot, actions and execute.
+ */
+public class LatencyModel {
+
+    /** The z-score of the 99th percentile of the standard normal distribution */
+    private static final double Z_99 = 2.326;
+
+    private final Map<String, Distribution> distributions = new ConcurrentHashMap<>();
+
+    /**
+     * Get a random latency for a command.
+     *
+     * @param command The command name
+     * @return The latency to simulate
+     */
+    public Duration latencyOf(String command) {
+        return distributions.computeIfAbsent(command, LatencyModel::configured).sample();
+    }
+
+    private static Distribution configured(String command) {
+        String spec = ConfigReader.getProperty("stub.latency." + command, ConfigReader.getProperty("stub.latency", "0ms"));
+        return parse(spec);
+    }
+
+    /**
+     * Parse a latency distribution.
+     *
+     * @param spec The distribution, e.g. 50ms, uniform:20ms..80ms or lognormal:40ms..400ms
+     * @return The distribution
+     * @throws IllegalArgumentException If the distribution is invalid
+     */
+    static Distribution parse(String spec) {
+        String trimmed = spec.trim().toLowerCase(Locale.ROOT);
+        try {
+            if (trimmed.startsWith("uniform:")) {
+                Duration[] bounds = bounds(trimmed.substring("uniform:".length()), false);
+                long min = bounds[0].toNanos();
+                long max = bounds[1].toNanos();
+                return () -> Duration.ofNanos(min + (long) (ThreadLocalRandom.current().nextDouble() * (max - min)));
+            }
+            if (trimmed.startsWith("lognormal:")) {
+                Duration[] bounds = bounds(trimmed.substring("lognormal:".length()), true);
+                double mu = Math.log(bounds[0].toNanos());
+                double sigma = Math.log((double) bounds[1].toNanos() / bounds[0].toNanos()) / Z_99;
+                return () -> Duration.ofNanos((long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+            }
+            Duration fixed = ConfigReader.parseDuration(trimmed);
+            return () -> fixed;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid stub latency: " + spec, e);
+        }
+    }
+
+    private static Duration[] bounds(String range, boolean positive) {
+        String[] parts = range.split("\\.\\.");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Expected <low>..<high> but was " + range);
+        }
+        Duration low = ConfigReader.parseDuration(parts[0]);
+        Duration high = ConfigReader.parseDuration(parts[1]);
+        if (low.isNegative() || high.compareTo(low) < 0 || (positive && low.isZero())) {
+            throw new IllegalArgumentException("Expected " + (positive ? "0 < " : "0 <= ") + "low <= high but was " + range);
+        }
+        return new Duration[]{low, high};
+    }
+
+    /**
+     * A source of latencies.
+     */
+    interface Distribution {
+        Duration sample();
+    }
+}
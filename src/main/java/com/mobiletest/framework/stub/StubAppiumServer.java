@@ -0,0 +1,403 @@
+package com.mobiletest.framework.stub;
+
+import com.mobiletest.framework.utils.TestUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openqa.selenium.remote.Dialect;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StubAppiumServer is a local, in-process server speaking the W3C WebDriver protocol with
+ * the Appium extensions the framework uses. It lets the framework run hundreds of parallel
+ * sessions without devices, so that pooling, waits and parallelism can be measured.
+ * <p>
+ * Every session shows a simple login screen (see {@link StubSession}). Supported commands are
+ * session create/delete, find element(s), click, clear, send keys, text, displayed, enabled,
+ * page source, screenshot, timeouts, W3C actions, mobile: replaceElementValue and the app
+ * management commands used to reset pooled sessions, including mobile: clearApp. Each command
+ * is delayed according to the {@link LatencyModel}.
+ */
+public class StubAppiumServer {
+
+    private static final String ELEMENT_KEY = Dialect.W3C.getEncodedElementKey();
+    /** A 1x1 transparent PNG */
+    private static final byte[] SCREENSHOT = Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAQAAAC1HAwCAAAAC0lEQVR42mNkYAAAAAYAAjCB0C8AAAAASUVORK5CYII=");
+
+    private final LatencyModel latencyModel;
+    private final Map<String, StubSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> commandCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionsCreated = new AtomicInteger();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Create a stub server whose latencies are read from the stub.latency properties
+     */
+    public StubAppiumServer() {
+        this(new LatencyModel());
+    }
+
+    /**
+     * Create a stub server with the given latencies
+     *
+     * @param latencyModel The latency model
+     */
+    public StubAppiumServer(LatencyModel latencyModel) {
+        this.latencyModel = latencyModel;
+    }
+
+    /**
+     * Start the server on a free local port.
+     *
+     * @return This server
+     */
+    public synchronized StubAppiumServer start() {
+        if (server != null) {
+            return this;
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to start stub Appium server", e);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-appium-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        TestUtils.logInfo("Stub Appium server listening on {}", getUrl());
+        return this;
+    }
+
+    /**
+     * Stop the server and log how many commands it answered.
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        TestUtils.logInfo("Stub Appium server stopped - sessions created: {}, commands: {}",
+                sessionsCreated.get(), new TreeMap<>(commandCounts));
+    }
+
+    /**
+     * @return The URL to create sessions at, e.g. http://127.0.0.1:51234/wd/hub
+     */
+    public String getUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + "/wd/hub";
+    }
+
+    /**
+     * @return The number of sessions created since the server started
+     */
+    public int getSessionsCreated() {
+        return sessionsCreated.get();
+    }
+
+    /**
+     * @return The number of sessions that are currently open
+     */
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * @param command The command name, e.g. findElement
+     * @return The number of times the command was answered
+     */
+    public long getCommandCount(String command) {
+        AtomicLong count = commandCounts.get(command);
+        return count == null ? 0 : count.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            JSONObject body = readBody(exchange);
+
+            int sessionStart = path.indexOf("/session");
+            if (sessionStart < 0) {
+                if (path.endsWith("/status")) {
+                    respond(exchange, 200, new JSONObject().put("ready", true).put("message", "Stub Appium server"));
+                } else {
+                    error(exchange, 404, "unknown command", method + " " + path);
+                }
+                return;
+            }
+
+            String[] segments = path.substring(sessionStart + 1).split("/");
+            if (segments.length == 1) {
+                if ("POST".equals(method)) {
+                    createSession(exchange, body);
+                } else {
+                    error(exchange, 404, "unknown command", method + " " + path);
+                }
+                return;
+            }
+
+            StubSession session = sessions.get(segments[1]);
+            if (session == null) {
+                error(exchange, 404, "invalid session id", "No session " + segments[1]);
+                return;
+            }
+            route(exchange, method, segments, session, body);
+        } catch (RuntimeException e) {
+            error(exchange, 500, "unknown error", String.valueOf(e.getMessage()));
+        }
+    }
+
+    private void createSession(HttpExchange exchange, JSONObject body) throws IOException {
+        simulate("newSession");
+        JSONObject requested = body.optJSONObject("capabilities");
+        JSONObject capabilities = requested == null ? new JSONObject() : requested.optJSONObject("alwaysMatch");
+        if (capabilities == null) {
+            capabilities = new JSONObject();
+        }
+        boolean android = !"ios".equalsIgnoreCase(capabilities.optString("platformName", "android"));
+        String sessionId = UUID.randomUUID().toString();
+        sessions.put(sessionId, new StubSession(sessionId, android));
+        sessionsCreated.incrementAndGet();
+        respond(exchange, 200, new JSONObject().put("sessionId", sessionId).put("capabilities", capabilities));
+    }
+
+    private void route(HttpExchange exchange, String method, String[] segments, StubSession session, JSONObject body)
+            throws IOException {
+        String resource = segments.length > 2 ? segments[2] : "";
+
+        if (segments.length == 2) {
+            if ("DELETE".equals(method)) {
+                simulate("deleteSession");
+                sessions.remove(session.getId());
+                respond(exchange, 200, JSONObject.NULL);
+            } else {
+                respond(exchange, 200, new JSONObject().put("platformName", session.isAndroid() ? "Android" : "iOS"));
+            }
+            return;
+        }
+
+        switch (resource) {
+            case "element":
+            case "elements":
+                if (segments.length == 3) {
+                    find(exchange, session, body, "elements".equals(resource));
+                } else {
+                    elementCommand(exchange, method, segments, session, body);
+                }
+                return;
+            case "source":
+                simulate("getPageSource");
+                respond(exchange, 200, session.getPageSource());
+                return;
+            case "screenshot":
+                simulate("screenshot");
+                respond(exchange, 200, Base64.getEncoder().encodeToString(SCREENSHOT));
+                return;
+            case "timeouts":
+                simulate("timeouts");
+                respond(exchange, 200, "GET".equals(method) ? new JSONObject().put("implicit", 0) : JSONObject.NULL);
+                return;
+            case "actions":
+                simulate("actions");
+                if ("POST".equals(method)) {
+                    performActions(session, body);
+                }
+                respond(exchange, 200, JSONObject.NULL);
+                return;
+            case "execute":
+                simulate("execute");
+                respond(exchange, 200, executeScript(session, body));
+                return;
+            case "appium":
+                simulate("appManagement");
+                respond(exchange, 200, appManagement(session, segments));
+                return;
+            default:
+                error(exchange, 404, "unknown command", method + " " + String.join("/", segments));
+        }
+    }
+
+    private void find(HttpExchange exchange, StubSession session, JSONObject body, boolean multiple) throws IOException {
+        simulate(multiple ? "findElements" : "findElement");
+        List<String> found;
+        try {
+            found = session.find(body.optString("using"), body.optString("value"));
+        } catch (IllegalArgumentException e) {
+            error(exchange, 400, "invalid selector", e.getMessage());
+            return;
+        }
+        if (multiple) {
+            JSONArray elements = new JSONArray();
+            found.forEach(elementId -> elements.put(elementReference(elementId)));
+            respond(exchange, 200, elements);
+        } else if (found.isEmpty()) {
+            error(exchange, 404, "no such element", "No element matching " + body.optString("using") + "=" + body.optString("value"));
+        } else {
+            respond(exchange, 200, elementReference(found.get(0)));
+        }
+    }
+
+    private void elementCommand(HttpExchange exchange, String method, String[] segments, StubSession session, JSONObject body)
+            throws IOException {
+        String elementId = segments[3];
+        String command = segments.length > 4 ? segments[4] : "";
+        if (!session.isOnScreen(elementId)) {
+            simulate(command);
+            error(exchange, 404, "stale element reference", "Element " + elementId + " is no longer on screen");
+            return;
+        }
+
+        switch (command) {
+            case "click":
+                simulate("click");
+                session.click(elementId);
+                respond(exchange, 200, JSONObject.NULL);
+                return;
+            case "clear":
+                simulate("clear");
+                session.clear(elementId);
+                respond(exchange, 200, JSONObject.NULL);
+                return;
+            case "value":
+                simulate("sendKeys");
+                session.sendKeys(elementId, body.optString("text"));
+                respond(exchange, 200, JSONObject.NULL);
+                return;
+            case "text":
+                simulate("getText");
+                respond(exchange, 200, session.getText(elementId));
+                return;
+            case "displayed":
+            case "enabled":
+                simulate(command);
+                respond(exchange, 200, true);
+                return;
+            default:
+                error(exchange, 404, "unknown command", method + " " + String.join("/", segments));
+        }
+    }
+
+    /**
+     * Perform W3C pointer actions: a pointer up after moving to an element clicks it.
+     */
+    private void performActions(StubSession session, JSONObject body) {
+        JSONArray sources = body.optJSONArray("actions");
+        if (sources == null) {
+            return;
+        }
+        for (int i = 0; i < sources.length(); i++) {
+            JSONArray actions = sources.getJSONObject(i).optJSONArray("actions");
+            String target = null;
+            for (int j = 0; actions != null && j < actions.length(); j++) {
+                JSONObject action = actions.getJSONObject(j);
+                Object origin = action.opt("origin");
+                if ("pointerMove".equals(action.optString("type"))) {
+                    target = origin instanceof JSONObject ? ((JSONObject) origin).optString(ELEMENT_KEY, null) : null;
+                } else if ("pointerUp".equals(action.optString("type")) && target != null && session.isOnScreen(target)) {
+                    session.click(target);
+                }
+            }
+        }
+    }
+
+    private Object executeScript(StubSession session, JSONObject body) {
+        String script = body.optString("script");
+        JSONArray args = body.optJSONArray("args");
+        JSONObject arguments = args != null && args.length() > 0 ? args.optJSONObject(0) : null;
+        switch (script) {
+            case "mobile: replaceElementValue":
+                if (arguments != null) {
+                    session.setText(arguments.optString("elementId"), arguments.optString("text"));
+                }
+                return JSONObject.NULL;
+            case "mobile: queryAppState":
+                return 4; // Running in foreground
+            case "mobile: terminateApp":
+            case "mobile: activateApp":
+            case "mobile: clearApp":
+                session.reset();
+                return true;
+            default:
+                return JSONObject.NULL;
+        }
+    }
+
+    private Object appManagement(StubSession session, String[] segments) {
+        String command = segments[segments.length - 1];
+        switch (command) {
+            case "app_state":
+                return 4; // Running in foreground
+            case "terminate_app":
+            case "activate_app":
+                session.reset();
+                return true;
+            default:
+                return JSONObject.NULL;
+        }
+    }
+
+    private void simulate(String command) {
+        commandCounts.computeIfAbsent(command, k -> new AtomicLong()).incrementAndGet();
+        Duration latency = latencyModel.latencyOf(command);
+        if (!latency.isZero()) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latency.toNanos());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static JSONObject elementReference(String elementId) {
+        return new JSONObject().put(ELEMENT_KEY, elementId).put("ELEMENT", elementId);
+    }
+
+    private static JSONObject readBody(HttpExchange exchange) throws IOException {
+        try (InputStream input = exchange.getRequestBody()) {
+            String body = new String(input.readAllBytes(), StandardCharsets.UTF_8).trim();
+            return body.startsWith("{") ? new JSONObject(body) : new JSONObject();
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String error, String message) throws IOException {
+        respond(exchange, status, new JSONObject().put("error", error).put("message", message).put("stacktrace", ""));
+    }
+
+    private static void respond(HttpExchange exchange, int status, Object value) throws IOException {
+        byte[] response = new JSONObject().put("value", value).toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(response);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.mobiletest.framework.stub;
+
+import com.mobiletest.framework.pages.PageSnapshot;
+import org.w3c.dom.Element;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StubSession is the state of one session on the stub server: a login screen with
+ * username and password fields, a login button and an error message. Logging in as
+ * validuser / validpassword shows a home screen; any other credentials show an error.
+ * <p>
+ * The screen is rendered as a UiAutomator2 or XCUITest page source, and element lookups
+ * are evaluated against it, so locators behave like on a device.
+ */
+class StubSession {
+
+    static final String VALID_USERNAME = "validuser";
+    static final String VALID_PASSWORD = "validpassword";
+    static final String USERNAME_INPUT = "username_input";
+    static final String PASSWORD_INPUT = "password_input";
+    static final String LOGIN_BUTTON = "login_button";
+    static final String ERROR_MESSAGE = "error_message";
+    static final String WELCOME_MESSAGE = "welcome_message";
+
+    private static final String APP_PACKAGE = "com.example.app";
+
+    private final String id;
+    private final boolean android;
+
+    private String username = "";
+    private String password = "";
+    private String errorMessage;
+    private boolean loggedIn;
+
+    StubSession(String id, boolean android) {
+        this.id = id;
+        this.android = android;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    boolean isAndroid() {
+        return android;
+    }
+
+    /**
+     * Find the elements matching a W3C locator on the current screen.
+     *
+     * @param using The locator strategy, e.g. id, accessibility id or xpath
+     * @param value The locator value
+     * @return The IDs of the matching elements
+     * @throws IllegalArgumentException If the strategy is not supported
+     */
+    synchronized List<String> find(String using, String value) {
+        PageSnapshot snapshot = PageSnapshot.parse(getPageSource(), android);
+        List<String> elementIds = new ArrayList<>();
+        for (Element element : snapshot.findAll(PageSnapshot.Locator.of(strategy(using), value))) {
+            String elementId = android ? element.getAttribute("resource-id") : element.getAttribute("name");
+            elementIds.add(elementId.substring(elementId.lastIndexOf('/') + 1));
+        }
+        return elementIds;
+    }
+
+    /**
+     * Check if an element is on the current screen.
+     *
+     * @param elementId The element ID
+     * @return True if the element is on screen
+     */
+    synchronized boolean isOnScreen(String elementId) {
+        return visibleElements().contains(elementId);
+    }
+
+    synchronized String getText(String elementId) {
+        switch (elementId) {
+            case USERNAME_INPUT:
+                return username;
+            case PASSWORD_INPUT:
+                return password;
+            case LOGIN_BUTTON:
+                return "Login";
+            case ERROR_MESSAGE:
+                return errorMessage;
+            case WELCOME_MESSAGE:
+                return "Welcome, " + VALID_USERNAME;
+            default:
+                return "";
+        }
+    }
+
+    synchronized void clear(String elementId) {
+        setText(elementId, "");
+    }
+
+    synchronized void sendKeys(String elementId, String text) {
+        setText(elementId, getText(elementId) + text);
+    }
+
+    synchronized void setText(String elementId, String text) {
+        if (USERNAME_INPUT.equals(elementId)) {
+            username = text;
+        } else if (PASSWORD_INPUT.equals(elementId)) {
+            password = text;
+        }
+    }
+
+    synchronized void click(String elementId) {
+        if (!LOGIN_BUTTON.equals(elementId)) {
+            return;
+        }
+        if (username.isEmpty() || password.isEmpty()) {
+            errorMessage = "Username and password are required";
+        } else if (VALID_USERNAME.equals(username) && VALID_PASSWORD.equals(password)) {
+            errorMessage = null;
+            loggedIn = true;
+        } else {
+            errorMessage = "Invalid username or password";
+        }
+    }
+
+    /**
+     * Restart the app: back to an empty login screen.
+     */
+    synchronized void reset() {
+        username = "";
+        password = "";
+        errorMessage = null;
+        loggedIn = false;
+    }
+
+    synchronized String getPageSource() {
+        StringBuilder source = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        if (android) {
+            source.append("<hierarchy rotation=\"0\">")
+                    .append("<android.widget.FrameLayout class=\"android.widget.FrameLayout\" package=\"")
+                    .append(APP_PACKAGE).append("\" displayed=\"true\">");
+        } else {
+            source.append("<XCUIElementTypeApplication type=\"XCUIElementTypeApplication\" name=\"Example\" visible=\"true\">");
+        }
+        for (String elementId : visibleElements()) {
+            appendElement(source, elementId);
+        }
+        source.append(android ? "</android.widget.FrameLayout></hierarchy>" : "</XCUIElementTypeApplication>");
+        return source.toString();
+    }
+
+    private List<String> visibleElements() {
+        List<String> elements = new ArrayList<>();
+        if (loggedIn) {
+            elements.add(WELCOME_MESSAGE);
+            return elements;
+        }
+        elements.add(USERNAME_INPUT);
+        elements.add(PASSWORD_INPUT);
+        elements.add(LOGIN_BUTTON);
+        if (errorMessage != null) {
+            elements.add(ERROR_MESSAGE);
+        }
+        return elements;
+    }
+
+    private void appendElement(StringBuilder source, String elementId) {
+        boolean input = USERNAME_INPUT.equals(elementId) || PASSWORD_INPUT.equals(elementId);
+        String text = escape(getText(elementId));
+        if (android) {
+            String type = input ? "android.widget.EditText" : LOGIN_BUTTON.equals(elementId) ? "android.widget.Button" : "android.widget.TextView";
+            source.append('<').append(type).append(" class=\"").append(type)
+                    .append("\" resource-id=\"").append(APP_PACKAGE).append(":id/").append(elementId)
+                    .append("\" text=\"").append(text).append("\" displayed=\"true\" enabled=\"true\"/>");
+        } else {
+            String type = input ? "XCUIElementTypeTextField" : LOGIN_BUTTON.equals(elementId) ? "XCUIElementTypeButton" : "XCUIElementTypeStaticText";
+            source.append('<').append(type).append(" type=\"").append(type)
+                    .append("\" name=\"").append(elementId)
+                    .append(input ? "\" value=\"" : "\" label=\"").append(text)
+                    .append("\" visible=\"true\" enabled=\"true\"/>");
+        }
+    }
+
+    private static PageSnapshot.Locator.Strategy strategy(String using) {
+        switch (using) {
+            case "id":
+                return PageSnapshot.Locator.Strategy.ID;
+            case "accessibility id":
+                return PageSnapshot.Locator.Strategy.ACCESSIBILITY_ID;
+            case "xpath":
+                return PageSnapshot.Locator.Strategy.XPATH;
+            case "class name":
+                return PageSnapshot.Locator.Strategy.CLASS_NAME;
+            default:
+                throw new IllegalArgumentException("Unsupported locator strategy: " + using);
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,144 @@
+package com.mobiletest.framework.utils;
+
+import com.mobiletest.framework.config.ConfigReader;
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.model.Attachment;
+import org.apache.logging.log4j.ThreadContext;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * ScreenshotStore keeps screenshots content-addressed: each distinct image is stored
+ * once under the SHA-256 of its bytes, and a manifest maps screenshot names to blobs.
+ * Identical screenshots taken across retries and devices therefore cost one file on
+ * disk and one attachment file in the Allure results.
+ * <p>
+ * Screenshots are stored in screenshot.directory, by default target/screenshots.
+ */
+public class ScreenshotStore {
+
+    private static final Set<String> storedBlobs = ConcurrentHashMap.newKeySet();
+    private static final Set<String> attachedBlobs = ConcurrentHashMap.newKeySet();
+    private static final Queue<JSONObject> manifest = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Store a screenshot, writing its blob only if the same image has not been stored before.
+     *
+     * @param screenshotName The name of the screenshot, recorded in the manifest
+     * @param screenshot The PNG bytes of the screenshot
+     * @return The path of the blob holding the screenshot
+     */
+    public static String store(String screenshotName, byte[] screenshot) {
+        String hash = hash(screenshot);
+        Path directory = getDirectory();
+        Path blob = directory.resolve("blobs").resolve(hash + ".png");
+
+        // Keyed by path, so that a blob is stored again when screenshot.directory changes. The key is
+        // claimed before the write finishes, so that concurrent identical screenshots are written once,
+        // and given up again if the write fails, so that the next identical screenshot is written.
+        String key = blob.toString();
+        if (storedBlobs.add(key) && !Files.exists(blob)) {
+            ScreenshotWriter.submit(blob, screenshot, () -> storedBlobs.remove(key));
+        } else {
+            TestUtils.logInfo("Screenshot {} is identical to stored blob {}", screenshotName, hash);
+        }
+
+        JSONObject entry = new JSONObject();
+        entry.put("name", screenshotName);
+        entry.put("timestamp", TestUtils.getTimestamp("yyyy-MM-dd'T'HH:mm:ss.SSS"));
+        entry.put("test", ThreadContext.get("test"));
+        entry.put("device", ThreadContext.get("device"));
+        entry.put("thread", Thread.currentThread().getName());
+        entry.put("blob", directory.relativize(blob).toString());
+        manifest.add(entry);
+
+        return blob.toString();
+    }
+
+    /**
+     * Attach a screenshot to the current Allure test or step. The attachment file is
+     * named after the content hash and written once, so identical screenshots share it.
+     *
+     * @param screenshotName The name of the attachment
+     * @param screenshot The PNG bytes of the screenshot
+     */
+    public static void attachToAllure(String screenshotName, byte[] screenshot) {
+        AllureLifecycle lifecycle = Allure.getLifecycle();
+        Optional<String> testCase = lifecycle.getCurrentTestCase();
+        if (!testCase.isPresent()) {
+            return;
+        }
+
+        String source = hash(screenshot) + "-attachment.png";
+        if (attachedBlobs.add(source)) {
+            lifecycle.writeAttachment(source, new ByteArrayInputStream(screenshot));
+        }
+
+        Attachment attachment = new Attachment().setName(screenshotName).setType("image/png").setSource(source);
+        Optional<String> current = lifecycle.getCurrentTestCaseOrStep();
+        if (current.isPresent() && !current.equals(testCase)) {
+            lifecycle.updateStep(current.get(), step -> step.getAttachments().add(attachment));
+        } else {
+            lifecycle.updateTestCase(testCase.get(), test -> test.getAttachments().add(attachment));
+        }
+    }
+
+    /**
+     * Write the manifest mapping screenshot names to blobs.
+     */
+    public static void writeManifest() {
+        if (manifest.isEmpty()) {
+            return;
+        }
+        JSONArray entries = new JSONArray();
+        manifest.forEach(entries::put);
+        Path manifestPath = getDirectory().resolve("manifest.json");
+        try {
+            Files.createDirectories(manifestPath.getParent());
+            Files.write(manifestPath, entries.toString(2).getBytes(StandardCharsets.UTF_8));
+            TestUtils.logInfo("Screenshot manifest written to: {} ({} screenshots, {} distinct)",
+                    manifestPath, entries.length(), storedBlobs.size());
+        } catch (IOException e) {
+            TestUtils.logError("Failed to write screenshot manifest", e);
+        }
+    }
+
+    /**
+     * @return The directory screenshots are stored in (screenshot.directory, default target/screenshots)
+     */
+    public static Path getDirectory() {
+        String directory = ConfigReader.getProperty("screenshot.directory", "").trim();
+        if (directory.isEmpty()) {
+            return Paths.get(System.getProperty("user.dir"), "target", "screenshots");
+        }
+        return Paths.get(directory).toAbsolutePath();
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
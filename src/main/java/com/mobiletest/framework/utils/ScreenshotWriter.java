@@ -0,0 +1,130 @@
+package com.mobiletest.framework.utils;
+
+import com.mobiletest.framework.config.ConfigReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScreenshotWriter persists screenshots on a background thread so that test threads
+ * only pay for the capture itself. Pending writes are held in a bounded queue; when
+ * the queue is full, submitting blocks until the writer catches up.
+ */
+public class ScreenshotWriter {
+
+    private static final WriteRequest POISON = new WriteRequest(null, null, null);
+
+    private static BlockingQueue<WriteRequest> queue;
+    private static Thread writerThread;
+
+    /**
+     * Queue screenshot bytes to be written to a file, starting the writer thread if needed.
+     *
+     * @param target The file to write
+     * @param bytes The PNG bytes of the screenshot
+     * @param onFailure Run on the writer thread if the file could not be written
+     */
+    public static void submit(Path target, byte[] bytes, Runnable onFailure) {
+        BlockingQueue<WriteRequest> current = start();
+        WriteRequest request = new WriteRequest(target, bytes, onFailure);
+        try {
+            current.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write(request);
+        }
+    }
+
+    /**
+     * Write all queued screenshots and stop the writer thread.
+     */
+    public static void shutdown() {
+        Thread thread;
+        BlockingQueue<WriteRequest> pending;
+        synchronized (ScreenshotWriter.class) {
+            if (writerThread == null) {
+                return;
+            }
+            thread = writerThread;
+            pending = queue;
+            writerThread = null;
+            queue = null;
+        }
+        try {
+            pending.put(POISON);
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static synchronized BlockingQueue<WriteRequest> start() {
+        if (writerThread == null) {
+            BlockingQueue<WriteRequest> pending = new ArrayBlockingQueue<>(ConfigReader.getInt("screenshot.queue.capacity", 64));
+            writerThread = new Thread(() -> drain(pending), "screenshot-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+            queue = pending;
+        }
+        return queue;
+    }
+
+    private static void drain(BlockingQueue<WriteRequest> pending) {
+        while (true) {
+            WriteRequest request;
+            try {
+                request = pending.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (request == POISON) {
+                // Write anything submitted concurrently with the shutdown
+                while ((request = pending.poll()) != null) {
+                    write(request);
+                }
+                return;
+            }
+            write(request);
+        }
+    }
+
+    private static void write(WriteRequest request) {
+        try {
+            Files.createDirectories(request.target.getParent());
+            try (FileChannel channel = FileChannel.open(request.target, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(request.bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            TestUtils.logInfo("Screenshot saved to: {}", request.target);
+        } catch (IOException e) {
+            TestUtils.logError("Failed to save screenshot: {}", request.target, e);
+            request.onFailure.run();
+        }
+    }
+
+    /**
+     * A screenshot waiting to be written.
+     */
+    private static class WriteRequest {
+        private final Path target;
+        private final byte[] bytes;
+        private final Runnable onFailure;
+
+        private WriteRequest(Path target, byte[] bytes, Runnable onFailure) {
+            this.target = target;
+            this.bytes = bytes;
+            this.onFailure = onFailure;
+        }
+    }
+}
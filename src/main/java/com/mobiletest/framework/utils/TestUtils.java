@@ -2,17 +2,15 @@ package com.mobiletest.framework.utils;
 
 import com.mobiletest.framework.core.DeviceManager;
 import io.appium.java_client.AppiumDriver;
-import io.qameta.allure.Attachment;
-import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 
-import java.io.File;
-import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.function.Supplier;
 
 /**
  * TestUtils provides utility methods for logging and taking screenshots.
@@ -30,6 +28,62 @@ public class TestUtils {
         logger.info(message);
     }
     
+    /**
+     * Log an info message with one parameter. Like the other fixed-arity overloads it
+     * delegates to the matching Logger overload, so no varargs array is allocated per call.
+     * 
+     * @param message The message with a {} placeholder
+     * @param p0 The value for the placeholder
+     */
+    public static void logInfo(String message, Object p0) {
+        logger.info(message, p0);
+    }
+    
+    /**
+     * Log an info message with two parameters
+     * 
+     * @param message The message with {} placeholders
+     * @param p0 The value for the first placeholder
+     * @param p1 The value for the second placeholder
+     */
+    public static void logInfo(String message, Object p0, Object p1) {
+        logger.info(message, p0, p1);
+    }
+    
+    /**
+     * Log an info message with three parameters
+     * 
+     * @param message The message with {} placeholders
+     * @param p0 The value for the first placeholder
+     * @param p1 The value for the second placeholder
+     * @param p2 The value for the third placeholder
+     */
+    public static void logInfo(String message, Object p0, Object p1, Object p2) {
+        logger.info(message, p0, p1, p2);
+    }
+    
+    /**
+     * Log a parameterized info message. The message is only formatted if info logging
+     * is enabled, so call sites do not need to concatenate strings up front.
+     * 
+     * @param message The message with {} placeholders
+     * @param params The values for the placeholders
+     */
+    public static void logInfo(String message, Object... params) {
+        logger.info(message, params);
+    }
+    
+    /**
+     * Log an info message that is only built if info logging is enabled
+     * 
+     * @param messageSupplier Supplies the message to log
+     */
+    public static void logInfo(Supplier<String> messageSupplier) {
+        if (logger.isInfoEnabled()) {
+            logger.info(messageSupplier.get());
+        }
+    }
+    
     /**
      * Log an error message
      * 
@@ -50,54 +104,152 @@ public class TestUtils {
     }
     
     /**
-     * Take a screenshot and save it to the specified directory
+     * Log an error message with one parameter
+     * 
+     * @param message The message with a {} placeholder
+     * @param p0 The value for the placeholder
+     */
+    public static void logError(String message, Object p0) {
+        logger.error(message, p0);
+    }
+    
+    /**
+     * Log an error message with two parameters. If the last parameter is a Throwable
+     * it is logged as the exception.
+     * 
+     * @param message The message with {} placeholders
+     * @param p0 The value for the first placeholder
+     * @param p1 The value for the second placeholder, or the exception
+     */
+    public static void logError(String message, Object p0, Object p1) {
+        logger.error(message, p0, p1);
+    }
+    
+    /**
+     * Log an error message with three parameters. If the last parameter is a Throwable
+     * it is logged as the exception.
+     * 
+     * @param message The message with {} placeholders
+     * @param p0 The value for the first placeholder
+     * @param p1 The value for the second placeholder
+     * @param p2 The value for the third placeholder, or the exception
+     */
+    public static void logError(String message, Object p0, Object p1, Object p2) {
+        logger.error(message, p0, p1, p2);
+    }
+    
+    /**
+     * Log a parameterized error message. If the last parameter is a Throwable it is
+     * logged as the exception.
+     * 
+     * @param message The message with {} placeholders
+     * @param params The values for the placeholders
+     */
+    public static void logError(String message, Object... params) {
+        logger.error(message, params);
+    }
+    
+    /**
+     * Tag all log events of the current thread with the running test, so that interleaved
+     * output of parallel tests can be split per test after the run.
+     * 
+     * @param testName The name of the running test
+     */
+    public static void setTestContext(String testName) {
+        ThreadContext.put("test", testName);
+    }
+    
+    /**
+     * Get the test the current thread is running
+     * 
+     * @return The name of the running test, or null outside of a test
+     */
+    public static String getTestContext() {
+        return ThreadContext.get("test");
+    }
+    
+    /**
+     * Tag all log events of the current thread with the device the test runs on
+     * 
+     * @param deviceName The name of the device
+     */
+    public static void setDeviceContext(String deviceName) {
+        ThreadContext.put("device", deviceName);
+    }
+    
+    /**
+     * Get the device the current thread's test runs on
+     * 
+     * @return The name of the device, or null outside of a test or for tests without a device
+     */
+    public static String getDeviceContext() {
+        return ThreadContext.get("device");
+    }
+    
+    /**
+     * Remove the test and device tags from the current thread
+     */
+    public static void clearTestContext() {
+        ThreadContext.remove("test");
+        ThreadContext.remove("device");
+    }
+    
+    /**
+     * Take a screenshot and save it to the content-addressed screenshot store.
+     * The file is written asynchronously by the {@link ScreenshotWriter}.
      * 
      * @param screenshotName The name of the screenshot
-     * @return The path to the saved screenshot
+     * @return The path the screenshot is saved to
      */
     public static String takeScreenshot(String screenshotName) {
-        AppiumDriver driver = DeviceManager.getDriver();
-        if (driver == null) {
+        byte[] screenshot = captureScreenshot();
+        if (screenshot == null) {
             logError("Driver is null, cannot take screenshot");
             return null;
         }
-        
-        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-        String fileName = screenshotName + "_" + timestamp + ".png";
-        String directory = System.getProperty("user.dir") + "/target/screenshots/";
-        
-        File screenshotDirectory = new File(directory);
-        if (!screenshotDirectory.exists()) {
-            screenshotDirectory.mkdirs();
-        }
-        
-        File screenshotFile = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
-        String filePath = directory + fileName;
-        
-        try {
-            FileUtils.copyFile(screenshotFile, new File(filePath));
-            logInfo("Screenshot saved to: " + filePath);
-            return filePath;
-        } catch (IOException e) {
-            logError("Failed to save screenshot", e);
-            return null;
-        }
+        return saveScreenshot(screenshotName, screenshot);
     }
     
     /**
-     * Take a screenshot and attach it to the Allure report
+     * Take a screenshot, save it to the screenshot store and attach it to the Allure report.
+     * The same capture is used for both, so the device is only asked for one screenshot,
+     * and identical screenshots share one stored file and one Allure attachment file.
      * 
      * @param screenshotName The name of the screenshot
      * @return The screenshot as a byte array
      */
-    @Attachment(value = "{0}", type = "image/png")
     public static byte[] takeScreenshotForAllure(String screenshotName) {
+        byte[] screenshot = captureScreenshot();
+        if (screenshot == null) {
+            logError("Driver is null, cannot take screenshot for Allure");
+            return null;
+        }
+        saveScreenshot(screenshotName, screenshot);
+        ScreenshotStore.attachToAllure(screenshotName, screenshot);
+        return screenshot;
+    }
+    
+    /**
+     * Save screenshot bytes to the content-addressed screenshot store
+     * 
+     * @param screenshotName The name of the screenshot
+     * @param screenshot The PNG bytes of the screenshot
+     * @return The path of the stored screenshot
+     */
+    public static String saveScreenshot(String screenshotName, byte[] screenshot) {
+        return ScreenshotStore.store(screenshotName, screenshot);
+    }
+    
+    /**
+     * Capture a screenshot from the current driver
+     * 
+     * @return The screenshot as PNG bytes, or null if there is no driver
+     */
+    private static byte[] captureScreenshot() {
         AppiumDriver driver = DeviceManager.getDriver();
         if (driver == null) {
-            logError("Driver is null, cannot take screenshot for Allure");
             return null;
         }
-        
         return ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
     }
     
@@ -0,0 +1,90 @@
+package com.mobiletest.framework.api;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ApiClientTest sends requests to a local HTTP server from many threads and verifies that
+ * they reuse pooled keep-alive connections.
+ */
+public class ApiClientTest {
+
+    private static final int THREADS = 8;
+    private static final int REQUESTS_PER_THREAD = 25;
+
+    private HttpServer server;
+    private String baseUrl;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+    private String recordMode;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        // The local server is not in the recording, so requests must be sent even if the build replays
+        recordMode = System.getProperty("api.record.mode");
+        System.setProperty("api.record.mode", "off");
+        ConfigReader.initialize();
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/users", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            requests.incrementAndGet();
+            String thread = exchange.getRequestURI().getPath().substring("/users/".length());
+            byte[] body = ("{\"username\": \"" + thread + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        server.stop(0);
+        if (recordMode == null) {
+            System.clearProperty("api.record.mode");
+        } else {
+            System.setProperty("api.record.mode", recordMode);
+        }
+        ConfigReader.initialize();
+    }
+
+    @Test(threadPoolSize = THREADS, invocationCount = THREADS)
+    public void testParallelRequestsReuseConnections() {
+        String thread = Thread.currentThread().getName().replaceAll("\\W", "");
+        for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+            String username = ApiClient.request(baseUrl)
+                    .pathParam("user", thread)
+                    .when()
+                    .get("/users/{user}")
+                    .then()
+                    .statusCode(200)
+                    .extract().jsonPath().getString("username");
+            Assert.assertEquals(username, thread, "Responses must not be mixed up between threads");
+        }
+    }
+
+    @Test(dependsOnMethods = "testParallelRequestsReuseConnections")
+    public void testConnectionsArePooled() {
+        Assert.assertEquals(requests.get(), THREADS * REQUESTS_PER_THREAD);
+        Assert.assertTrue(clientPorts.size() <= THREADS,
+                "Expected at most one connection per thread but got " + clientPorts.size());
+    }
+}
@@ -0,0 +1,57 @@
+package com.mobiletest.framework.api;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+/**
+ * ApiResponseTest verifies path queries on the cached tree and the streaming array
+ * operations, including skipping over values next to the streamed array.
+ */
+public class ApiResponseTest {
+
+    private static final String LISTING = "{\"meta\": {\"page\": 1, \"note\": \"a [tricky] {\\\"value\\\"}\"},"
+            + " \"tags\": [[1, 2], {}], \"users\": ["
+            + "{\"id\": 1, \"email\": \"a@example.com\", \"active\": true},"
+            + "{\"id\": 2, \"email\": \"b@example.com\", \"active\": false},"
+            + "{\"id\": 3, \"email\": \"c@example.com\", \"active\": true}]}";
+
+    @Test
+    public void testPathQueries() {
+        ApiResponse response = ApiResponse.of(response(LISTING));
+
+        Assert.assertEquals(response.getStatusCode(), 200);
+        Assert.assertEquals(response.getInt("meta.page"), 1);
+        Assert.assertEquals(response.getString("users[1].email"), "b@example.com");
+        Assert.assertEquals(response.getList("users.id"), Arrays.asList(1, 2, 3));
+        Assert.assertEquals((Integer) response.get("users.find { it.email == 'c@example.com' }.id"), Integer.valueOf(3));
+    }
+
+    @Test
+    public void testStreamingOverArrays() {
+        ApiResponse response = ApiResponse.of(response(LISTING));
+
+        Assert.assertEquals(response.count("users"), 3);
+        Assert.assertEquals(response.count("users", user -> user.getBoolean("active")), 2);
+        Assert.assertTrue(response.allMatch("users", user -> user.getString("email").contains("@")));
+        Assert.assertTrue(response.anyMatch("users", user -> user.getInt("id") == 2));
+        Assert.assertFalse(response.anyMatch("users", user -> user.getInt("id") == 4));
+        Assert.assertEquals(response.count("tags"), 2);
+        Assert.expectThrows(IllegalArgumentException.class, () -> response.count("missing"));
+        Assert.expectThrows(IllegalArgumentException.class, () -> response.count("meta"));
+    }
+
+    @Test
+    public void testStreamingOverRootArray() {
+        Assert.assertEquals(ApiResponse.of(response("[{\"id\": 1}, {\"id\": 2}]")).count("$"), 2);
+        Assert.assertEquals(ApiResponse.of(response(" [ ] ")).count("$"), 0);
+    }
+
+    private static Response response(String body) {
+        return new ResponseBuilder().setStatusCode(200).setContentType(ContentType.JSON).setBody(body).build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.mobiletest.framework.api;
+
+import com.mobiletest.framework.api.LoadRunner.LoadReport;
+import com.mobiletest.framework.utils.TestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LoadRunnerTest verifies that load runs stop at their request count or duration, count
+ * requests, errors and latencies per scenario, and drop the scenarios' info logging.
+ */
+public class LoadRunnerTest {
+
+    private static final Logger logger = LogManager.getLogger(TestUtils.class);
+
+    @Test
+    public void testRunStopsAtRequestCount() {
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        Map<String, Runnable> scenarios = new LinkedHashMap<>();
+        scenarios.put("ok", () -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            sleep(2);
+            concurrent.decrementAndGet();
+        });
+        scenarios.put("failing", () -> {
+            throw new AssertionError("Expected status code 200");
+        });
+
+        LoadReport report = LoadRunner.run(scenarios, 4, Duration.ofSeconds(30), 200);
+
+        Assert.assertEquals(report.getRequests(), 200);
+        Assert.assertEquals(report.getLatencies("ok").getCount(), 100);
+        Assert.assertEquals(report.getErrors(), 100);
+        Assert.assertTrue(report.getLatencies("ok").percentile(0.5) >= 2000, "Latencies are recorded in microseconds");
+        Assert.assertTrue(maxConcurrent.get() > 1 && maxConcurrent.get() <= 4, "Concurrency was " + maxConcurrent.get());
+        Assert.assertTrue(report.getRequestsPerSecond() > 0);
+    }
+
+    @Test
+    public void testRunStopsAfterDuration() {
+        Map<String, Runnable> scenarios = new LinkedHashMap<>();
+        scenarios.put("ok", () -> {
+            Assert.assertFalse(logger.isInfoEnabled(), "Scenario info logging should be dropped while measuring");
+            Assert.assertTrue(logger.isWarnEnabled());
+            sleep(1);
+        });
+
+        LoadReport report = LoadRunner.run(scenarios, 2, Duration.ofMillis(200), 0);
+
+        Assert.assertTrue(report.getRequests() > 0);
+        Assert.assertEquals(report.getErrors(), 0);
+        Assert.assertTrue(logger.isInfoEnabled());
+        Assert.assertTrue(report.getElapsed().toMillis() >= 200 && report.getElapsed().toMillis() < 2000,
+                "Run took " + report.getElapsed());
+        Assert.assertEquals(report.toJson().getJSONObject("scenarios").getJSONObject("total").getLong("requests"),
+                report.getRequests());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.mobiletest.framework.api;
+
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RecordReplayFilterTest records responses of a local HTTP server and replays them after the
+ * server has been stopped, and checks that recording a request again does not grow the file.
+ */
+public class RecordReplayFilterTest {
+
+    @Test
+    public void testRecordedResponsesAreReplayedOffline() throws Exception {
+        Path recordings = Files.createTempFile("api-recordings", ".bin");
+        Files.delete(recordings);
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/users", exchange -> {
+            requests.incrementAndGet();
+            String query = exchange.getRequestURI().getQuery();
+            byte[] body = ("{\"method\": \"" + exchange.getRequestMethod() + "\", \"query\": \"" + query + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders("POST".equals(exchange.getRequestMethod()) ? 201 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        try {
+            RecordReplayFilter recorder = new RecordReplayFilter(RecordReplayFilter.Mode.RECORD, recordings);
+            request(baseUrl, recorder).queryParam("b", 2).queryParam("a", 1).get("/users");
+            request(baseUrl, recorder).body("{\"name\": \"John\"}").post("/users");
+        } finally {
+            server.stop(0);
+        }
+        Assert.assertEquals(requests.get(), 2);
+
+        RecordReplayFilter player = new RecordReplayFilter(RecordReplayFilter.Mode.REPLAY, recordings);
+        Response replayed = request(baseUrl, player).queryParam("a", 1).queryParam("b", 2).get("/users");
+        Assert.assertEquals(replayed.getStatusCode(), 200);
+        Assert.assertEquals(ApiResponse.of(replayed).getString("query"), "b=2&a=1");
+        Assert.assertEquals(replayed.getContentType(), "application/json");
+
+        Response created = request(baseUrl, player).body("{\"name\": \"John\"}").post("/users");
+        Assert.assertEquals(created.getStatusCode(), 201);
+        Assert.assertEquals(created.jsonPath().getString("method"), "POST");
+
+        Assert.expectThrows(IllegalStateException.class,
+                () -> request(baseUrl, player).body("{\"name\": \"Jane\"}").post("/users"));
+        Assert.assertEquals(requests.get(), 2, "Replaying must not send requests");
+        Files.delete(recordings);
+    }
+
+    @Test
+    public void testRecordingAgainReplacesTheEntry() throws Exception {
+        Path recordings = Files.createTempFile("api-recordings", ".bin");
+        Files.delete(recordings);
+        RecordingStore store = new RecordingStore(recordings);
+        store.save("GET /users", recording("first"));
+        long size = Files.size(recordings);
+        store.save("GET /users", recording("again"));
+        store.save("GET /users", recording("later"));
+
+        Assert.assertEquals(Files.size(recordings), size, "The file should keep one entry per key");
+        RecordingStore reloaded = new RecordingStore(recordings);
+        Assert.assertEquals(reloaded.size(), 1);
+        Assert.assertEquals(new String(reloaded.find("GET /users").getBody(), StandardCharsets.UTF_8), "later");
+        Files.delete(recordings);
+    }
+
+    private static RecordingStore.Recording recording(String body) {
+        return new RecordingStore.Recording(200, Collections.emptyList(),
+                ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static RequestSpecification request(String baseUrl, RecordReplayFilter filter) {
+        return RestAssured.given().baseUri(baseUrl).contentType(ContentType.JSON).filter(filter);
+    }
+}
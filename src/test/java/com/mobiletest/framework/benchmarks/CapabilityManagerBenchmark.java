@@ -0,0 +1,42 @@
+package com.mobiletest.framework.benchmarks;
+
+import com.mobiletest.framework.config.CapabilityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CapabilityManagerBenchmark measures building the capabilities of a device from the
+ * compiled capabilities.json model, which every session creation does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CapabilityManagerBenchmark {
+
+    private String deviceName;
+
+    @Setup
+    public void setUp() {
+        CapabilityManager.initialize();
+        deviceName = CapabilityManager.getDeviceNames("android").get(0);
+    }
+
+    @Benchmark
+    public DesiredCapabilities getCapabilities() {
+        return CapabilityManager.getCapabilities("android", deviceName);
+    }
+}
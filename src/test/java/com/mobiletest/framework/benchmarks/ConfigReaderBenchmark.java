@@ -0,0 +1,51 @@
+package com.mobiletest.framework.benchmarks;
+
+import com.mobiletest.framework.config.ConfigReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConfigReaderBenchmark measures configuration lookups while many test threads read
+ * the configuration at the same time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ConfigReaderBenchmark {
+
+    @Setup
+    public void setUp() {
+        ConfigReader.initialize();
+    }
+
+    @Benchmark
+    public String getProperty() {
+        return ConfigReader.getProperty("appium.server.url");
+    }
+
+    @Benchmark
+    public String getMissingPropertyWithDefault() {
+        return ConfigReader.getProperty("benchmark.missing", "default");
+    }
+
+    @Benchmark
+    public Duration getDuration() {
+        return ConfigReader.getDuration("wait.poll.initial", Duration.ofMillis(50));
+    }
+}
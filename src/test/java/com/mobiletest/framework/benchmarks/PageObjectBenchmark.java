@@ -0,0 +1,73 @@
+package com.mobiletest.framework.benchmarks;
+
+import com.mobiletest.framework.core.DeviceManager;
+import com.mobiletest.framework.pages.LoginPage;
+import io.appium.java_client.android.AndroidDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import java.net.MalformedURLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PageObjectBenchmark measures page object construction and BasePage actions against an
+ * in-process stub driver, i.e. the framework overhead added on top of each Appium command.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageObjectBenchmark {
+
+    private LoginPage loginPage;
+
+    @Setup
+    public void setUp() throws MalformedURLException {
+        DesiredCapabilities capabilities = new DesiredCapabilities();
+        capabilities.setCapability("deviceName", "stub");
+        capabilities.setCapability("automationName", "UiAutomator2");
+        DeviceManager.setDriver(new AndroidDriver(new StubCommandExecutor(), capabilities));
+        loginPage = new LoginPage();
+    }
+
+    @Benchmark
+    public LoginPage newLoginPage() {
+        return new LoginPage();
+    }
+
+    @Benchmark
+    public String getErrorMessage() {
+        return loginPage.getErrorMessage();
+    }
+
+    @Benchmark
+    public boolean isErrorMessageDisplayed() {
+        return loginPage.isErrorMessageDisplayed();
+    }
+
+    @Benchmark
+    public boolean isErrorMessageAbsent() {
+        return loginPage.isErrorMessageAbsent();
+    }
+
+    @Benchmark
+    public LoginPage enterUsername() {
+        return loginPage.enterUsername("testuser");
+    }
+
+    @Benchmark
+    public void login() {
+        loginPage.login("testuser", "password123");
+    }
+}
@@ -0,0 +1,90 @@
+package com.mobiletest.framework.benchmarks;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.utils.ScreenshotWriter;
+import com.mobiletest.framework.utils.TestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * ScreenshotBenchmark measures the time a test thread spends persisting a screenshot,
+ * for repeated captures of the same screen and for captures that differ every time.
+ * Differing captures cycle through a fixed set of screens, so every trial writes a bounded
+ * number of blobs, to a temporary directory that is deleted after the trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class ScreenshotBenchmark {
+
+    private static final int DISTINCT_SCREENSHOTS = 256;
+
+    @Param({"true", "false"})
+    public boolean identical;
+
+    @Param({"16384"})
+    public int size;
+
+    private byte[][] screenshots;
+    private int next;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("screenshot-benchmark");
+        System.setProperty("screenshot.directory", directory.toString());
+        ConfigReader.initialize();
+
+        Random random = new Random(42);
+        screenshots = new byte[identical ? 1 : DISTINCT_SCREENSHOTS][size];
+        for (int i = 0; i < screenshots.length; i++) {
+            random.nextBytes(screenshots[i]);
+            ByteBuffer.wrap(screenshots[i]).putInt(0, i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ScreenshotWriter.shutdown();
+        System.clearProperty("screenshot.directory");
+        ConfigReader.initialize();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            Files.delete(file);
+        }
+    }
+
+    @Benchmark
+    public String saveScreenshot() {
+        byte[] screenshot = screenshots[next];
+        next = (next + 1) % screenshots.length;
+        return TestUtils.saveScreenshot("benchmark", screenshot);
+    }
+}
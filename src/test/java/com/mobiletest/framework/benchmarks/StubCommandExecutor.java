@@ -0,0 +1,83 @@
+package com.mobiletest.framework.benchmarks;
+
+import io.appium.java_client.MobileCommand;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.Dialect;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.ErrorCodes;
+import org.openqa.selenium.remote.Response;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StubCommandExecutor answers driver commands in-process without an Appium server,
+ * so that benchmarks measure only the framework's own overhead. Every element lookup
+ * finds an element, which is displayed, enabled and has the text "stub".
+ */
+public class StubCommandExecutor extends AppiumCommandExecutor {
+
+    private static final String ELEMENT_KEY = Dialect.W3C.getEncodedElementKey();
+    private static final String SCREENSHOT = Base64.getEncoder().encodeToString(new byte[]{
+            (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'});
+    private static final String PAGE_SOURCE = "<hierarchy>"
+            + "<android.widget.EditText resource-id=\"com.example.app:id/username_input\" text=\"\" displayed=\"true\"/>"
+            + "<android.widget.EditText resource-id=\"com.example.app:id/password_input\" text=\"\" displayed=\"true\"/>"
+            + "<android.widget.Button resource-id=\"com.example.app:id/login_button\" text=\"Log in\" displayed=\"true\"/>"
+            + "</hierarchy>";
+
+    private final AtomicLong elementIds = new AtomicLong();
+
+    public StubCommandExecutor() throws MalformedURLException {
+        super(MobileCommand.commandRepository, new URL("http://localhost:4723/wd/hub"));
+    }
+
+    @Override
+    public Response execute(Command command) {
+        Response response = new Response();
+        response.setSessionId("stub-session");
+        response.setStatus(ErrorCodes.SUCCESS);
+        response.setState("success");
+        response.setValue(valueFor(command));
+        return response;
+    }
+
+    private Object valueFor(Command command) {
+        switch (command.getName()) {
+            case DriverCommand.NEW_SESSION:
+                Map<String, Object> capabilities = new HashMap<>();
+                capabilities.put("platformName", "Android");
+                capabilities.put("automationName", "UiAutomator2");
+                return capabilities;
+            case DriverCommand.FIND_ELEMENT:
+            case DriverCommand.FIND_CHILD_ELEMENT:
+                return element();
+            case DriverCommand.FIND_ELEMENTS:
+            case DriverCommand.FIND_CHILD_ELEMENTS:
+                return Collections.singletonList(element());
+            case DriverCommand.GET_ELEMENT_TEXT:
+                return "stub";
+            case DriverCommand.IS_ELEMENT_DISPLAYED:
+            case DriverCommand.IS_ELEMENT_ENABLED:
+                return true;
+            case DriverCommand.GET_PAGE_SOURCE:
+                return PAGE_SOURCE;
+            case DriverCommand.SCREENSHOT:
+                return SCREENSHOT;
+            case DriverCommand.GET_TIMEOUTS:
+                return Collections.singletonMap("implicit", 0L);
+            default:
+                return null;
+        }
+    }
+
+    private Map<String, Object> element() {
+        return Collections.singletonMap(ELEMENT_KEY, "element-" + elementIds.incrementAndGet());
+    }
+}
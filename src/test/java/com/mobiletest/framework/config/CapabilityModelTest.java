@@ -0,0 +1,46 @@
+package com.mobiletest.framework.config;
+
+import org.json.JSONObject;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * CapabilityModelTest verifies load-time validation of capabilities.json and that
+ * capability templates cannot be modified through the copies handed to sessions.
+ */
+public class CapabilityModelTest {
+
+    @Test
+    public void testInvalidDevicesAreReportedTogether() {
+        JSONObject json = new JSONObject("{"
+                + "\"android\": {\"capabilities\": {}, \"devices\": ["
+                + "  {\"name\": \"Pixel\", \"platformVersion\": \"11.0\"},"
+                + "  {\"name\": \"Pixel\", \"platformVersion\": \"12.0\"},"
+                + "  {\"platformVersion\": \"10.0\"}"
+                + "]},"
+                + "\"ios\": {\"devices\": [{\"name\": \"iPhone\"}]}"
+                + "}");
+
+        IllegalStateException error = Assert.expectThrows(IllegalStateException.class,
+                () -> CapabilityModel.compile(json));
+
+        Assert.assertTrue(error.getMessage().contains("duplicate device name 'Pixel'"), error.getMessage());
+        Assert.assertTrue(error.getMessage().contains("android.devices[2]: missing 'name'"), error.getMessage());
+        Assert.assertTrue(error.getMessage().contains("ios: missing 'capabilities' object"), error.getMessage());
+        Assert.assertTrue(error.getMessage().contains("(iPhone): missing 'platformVersion'"), error.getMessage());
+    }
+
+    @Test
+    public void testCapabilitiesAreCopiedFromTemplate() {
+        DesiredCapabilities first = CapabilityManager.getCapabilities("android", "Pixel_4_API_30");
+        first.setCapability("noReset", true);
+
+        DesiredCapabilities second = CapabilityManager.getCapabilities("android", "Pixel_4_API_30");
+
+        Assert.assertEquals(second.getCapability("noReset"), false);
+        Assert.assertEquals(second.getCapability("deviceName"), "Pixel_4_API_30");
+        Assert.assertEquals(second.getCapability("platformVersion"), "11.0");
+        Assert.assertEquals(second.getCapability("appPackage"), "com.example.app");
+    }
+}
@@ -0,0 +1,54 @@
+package com.mobiletest.framework.config;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * ConfigReaderTest verifies layering of system properties over the properties file
+ * and the typed accessors.
+ */
+public class ConfigReaderTest {
+
+    @AfterMethod
+    public void restoreDefaultConfig() {
+        System.clearProperty("config.test.override");
+        ConfigReader.initialize();
+    }
+
+    @Test
+    public void testSystemPropertiesOverrideFile() throws IOException {
+        Path config = Files.createTempFile("config", ".properties");
+        Files.write(config, "config.test.override=file\nconfig.test.plain=file\n".getBytes());
+        System.setProperty("config.test.override", "system");
+
+        ConfigReader.initialize(config.toString());
+
+        Assert.assertEquals(ConfigReader.getProperty("config.test.override"), "system");
+        Assert.assertEquals(ConfigReader.getProperty("config.test.plain"), "file");
+        Files.delete(config);
+    }
+
+    @Test
+    public void testTypedAccessors() throws IOException {
+        Path config = Files.createTempFile("config", ".properties");
+        Files.write(config, ("timeout.seconds=30\ntimeout.millis=250ms\ntimeout.iso=PT2M\n"
+                + "retry.count=2\nflag=true\nbroken=abc\n").getBytes());
+
+        ConfigReader.initialize(config.toString());
+
+        Assert.assertEquals(ConfigReader.getDuration("timeout.seconds", Duration.ZERO), Duration.ofSeconds(30));
+        Assert.assertEquals(ConfigReader.getDuration("timeout.millis", Duration.ZERO), Duration.ofMillis(250));
+        Assert.assertEquals(ConfigReader.getDuration("timeout.iso", Duration.ZERO), Duration.ofMinutes(2));
+        Assert.assertEquals(ConfigReader.getDuration("missing", Duration.ofSeconds(5)), Duration.ofSeconds(5));
+        Assert.assertEquals(ConfigReader.getInt("retry.count", 0), 2);
+        Assert.assertTrue(ConfigReader.getBoolean("flag", false));
+        Assert.expectThrows(IllegalArgumentException.class, () -> ConfigReader.getInt("broken", 0));
+        Files.delete(config);
+    }
+}
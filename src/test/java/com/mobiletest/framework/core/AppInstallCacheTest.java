@@ -0,0 +1,89 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.ConfigReader;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * AppInstallCacheTest verifies that builds are identified by the content of the app artifact,
+ * that installed builds are remembered per device in the cache file, and that the file is only
+ * read once and merged with other writers' entries on change.
+ */
+public class AppInstallCacheTest {
+
+    private Path directory;
+
+    @BeforeClass
+    public void useTemporaryCache() throws Exception {
+        directory = Files.createTempDirectory("app-install-cache");
+        System.setProperty("app.install.cache.path", directory.resolve("installs.json").toString());
+        ConfigReader.initialize();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void restoreConfiguration() {
+        System.clearProperty("app.install.cache.path");
+        ConfigReader.initialize();
+    }
+
+    @Test
+    public void testBuildHash() throws Exception {
+        Path apk = directory.resolve("app.apk");
+        Files.write(apk, "build 1".getBytes(StandardCharsets.UTF_8));
+        String first = AppInstallCache.buildOf(apk.toString());
+        Assert.assertEquals(first.length(), 64);
+        Assert.assertEquals(AppInstallCache.buildOf(apk.toString()), first);
+
+        Files.write(apk, "build 2".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(apk, FileTime.fromMillis(Files.getLastModifiedTime(apk).toMillis() + 1000));
+        Assert.assertNotEquals(AppInstallCache.buildOf(apk.toString()), first);
+
+        Path app = Files.createDirectories(directory.resolve("App.app"));
+        Files.write(app.resolve("Info.plist"), "plist".getBytes(StandardCharsets.UTF_8));
+        Assert.assertNotNull(AppInstallCache.buildOf(app.toString()));
+
+        Assert.assertNull(AppInstallCache.buildOf("https://example.com/app.apk"));
+        Assert.assertNull(AppInstallCache.buildOf(directory.resolve("missing.apk").toString()));
+    }
+
+    @Test
+    public void testInstallsArePersistedPerDevice() {
+        Assert.assertFalse(AppInstallCache.isInstalled("emulator-5554", "com.example.app", "abc123abc123abc"));
+
+        AppInstallCache.recordInstall("emulator-5554", "com.example.app", "abc123abc123abc", null);
+        AppInstallCache.recordInstall("emulator-5556", "com.example.app", "def456def456def", "emulator-5556");
+        Assert.assertTrue(Files.exists(AppInstallCache.getPath()));
+        Assert.assertTrue(AppInstallCache.isInstalled("emulator-5554", "com.example.app", "abc123abc123abc"));
+        Assert.assertFalse(AppInstallCache.isInstalled("emulator-5554", "com.example.app", "def456def456def"));
+        Assert.assertFalse(AppInstallCache.isInstalled("emulator-5554", "com.example.other", "abc123abc123abc"));
+
+        AppInstallCache.forget("emulator-5554", "com.example.app");
+        Assert.assertFalse(AppInstallCache.isInstalled("emulator-5554", "com.example.app", "abc123abc123abc"));
+        Assert.assertTrue(AppInstallCache.isInstalled("emulator-5556", "com.example.app", "def456def456def"));
+    }
+
+    @Test
+    public void testInstallsAreKeptInMemoryAndMergedOnWrite() throws Exception {
+        AppInstallCache.recordInstall("Pixel_4_API_30", "com.example.app", "aaa111aaa111aaa", "emulator-5560");
+        Assert.assertEquals(AppInstallCache.getInstalledUdid("Pixel_4_API_30", "com.example.app"), "emulator-5560");
+
+        // Another JVM records an install; this JVM keeps answering from memory until it writes
+        String file = new String(Files.readAllBytes(AppInstallCache.getPath()), StandardCharsets.UTF_8);
+        Files.write(AppInstallCache.getPath(), file.replaceFirst("\\{", "{\"iPhone 12|com.example.app\": \"bbb222bbb222bbb\", ")
+                .getBytes(StandardCharsets.UTF_8));
+        Assert.assertFalse(AppInstallCache.isInstalled("iPhone 12", "com.example.app", "bbb222bbb222bbb"));
+
+        AppInstallCache.forget("Pixel_4_API_30", "com.example.app");
+        Assert.assertTrue(AppInstallCache.isInstalled("iPhone 12", "com.example.app", "bbb222bbb222bbb"));
+        Assert.assertNull(AppInstallCache.getInstalledUdid("iPhone 12", "com.example.app"));
+        Assert.assertFalse(new String(Files.readAllBytes(AppInstallCache.getPath()), StandardCharsets.UTF_8)
+                .contains("Pixel_4_API_30"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.stub.StubAppiumServer;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+/**
+ * AppiumServerRegistryTest verifies with several stub servers that sessions are routed to the
+ * least loaded server and fail over when a server goes down.
+ */
+public class AppiumServerRegistryTest {
+
+    private static final String DEVICE = "routed-device";
+
+    private StubAppiumServer first;
+    private StubAppiumServer second;
+
+    @BeforeClass
+    public void startServers() {
+        first = new StubAppiumServer().start();
+        second = new StubAppiumServer().start();
+        System.setProperty("appium.servers." + DEVICE, first.getUrl() + "," + second.getUrl());
+        ConfigReader.initialize();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServers() {
+        AppiumServerRegistry.shutdown();
+        AppiumServerRegistry.reset();
+        System.clearProperty("appium.servers." + DEVICE);
+        ConfigReader.initialize();
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    public void testLeastLoadedRoutingAndFailover() {
+        Assert.assertEquals(AppiumServerRegistry.getServerUrls(DEVICE), Arrays.asList(first.getUrl(), second.getUrl()));
+        Assert.assertEquals(AppiumServerRegistry.getServerUrls("unrouted-device"),
+                Arrays.asList(ConfigReader.getProperty("appium.server.url")));
+
+        AndroidDriver one = createSession();
+        AndroidDriver two = createSession();
+        Assert.assertEquals(first.getActiveSessions(), 1);
+        Assert.assertEquals(second.getActiveSessions(), 1);
+
+        quit(one);
+        AndroidDriver three = createSession();
+        Assert.assertEquals(first.getActiveSessions(), 1, "The server with fewer sessions should be chosen");
+        Assert.assertEquals(AppiumServerRegistry.getActiveSessions(first.getUrl()), 1);
+        quit(three);
+
+        String down = first.getUrl();
+        first.stop();
+        AndroidDriver four = createSession();
+        Assert.assertEquals(second.getActiveSessions(), 2, "The session should fail over to the healthy server");
+        Assert.assertFalse(AppiumServerRegistry.isHealthy(down));
+        Assert.assertEquals(AppiumServerRegistry.getActiveSessions(down), 0);
+
+        quit(two);
+        quit(four);
+        Assert.assertEquals(AppiumServerRegistry.getActiveSessions(second.getUrl()), 0);
+    }
+
+    private AndroidDriver createSession() {
+        DesiredCapabilities capabilities = new DesiredCapabilities();
+        capabilities.setCapability("appium:automationName", "UiAutomator2");
+        return AppiumServerRegistry.createSession(DEVICE, url -> new AndroidDriver(url, capabilities));
+    }
+
+    private static void quit(AndroidDriver driver) {
+        driver.quit();
+        AppiumServerRegistry.sessionEnded(driver);
+    }
+}
@@ -0,0 +1,122 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.CapabilityManager;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DeviceLeaseManagerTest verifies that parallel threads are spread over all devices
+ * of a platform, that a thread waits while every device is leased, and that waiting
+ * threads get released devices in the order they arrived.
+ */
+public class DeviceLeaseManagerTest {
+
+    @Test
+    public void testParallelThreadsLeaseDistinctDevices() throws Exception {
+        List<String> devices = CapabilityManager.getDeviceNames("ios");
+        ExecutorService executor = Executors.newFixedThreadPool(devices.size() + 1);
+        CountDownLatch allLeased = new CountDownLatch(devices.size());
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            List<Future<String>> leases = new ArrayList<>();
+            for (int i = 0; i < devices.size(); i++) {
+                leases.add(executor.submit(() -> {
+                    String device = DeviceLeaseManager.leaseDevice("ios");
+                    allLeased.countDown();
+                    release.await();
+                    DeviceLeaseManager.releaseDevice();
+                    return device;
+                }));
+            }
+            Assert.assertTrue(allLeased.await(10, TimeUnit.SECONDS), "Every thread should get a device");
+
+            Future<String> waiting = executor.submit(() -> {
+                String device = DeviceLeaseManager.leaseDevice("ios");
+                DeviceLeaseManager.releaseDevice();
+                return device;
+            });
+            Thread.sleep(200);
+            Assert.assertFalse(waiting.isDone(), "A thread should wait while all devices are leased");
+
+            release.countDown();
+            Set<String> leased = new HashSet<>();
+            for (Future<String> lease : leases) {
+                leased.add(lease.get(10, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(leased, new HashSet<>(devices), "Each device should be leased exactly once");
+            Assert.assertTrue(devices.contains(waiting.get(10, TimeUnit.SECONDS)));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitingThreadsAreServedInArrivalOrder() throws Exception {
+        List<String> devices = CapabilityManager.getDeviceNames("ios");
+        int waiters = 3;
+        ExecutorService executor = Executors.newFixedThreadPool(devices.size() + waiters);
+        CountDownLatch allLeased = new CountDownLatch(devices.size());
+        List<CountDownLatch> releases = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        List<Integer> served = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            for (int i = 0; i < devices.size(); i++) {
+                CountDownLatch release = new CountDownLatch(1);
+                releases.add(release);
+                executor.submit(() -> {
+                    DeviceLeaseManager.leaseDevice("ios");
+                    allLeased.countDown();
+                    release.await();
+                    DeviceLeaseManager.releaseDevice();
+                    return null;
+                });
+            }
+            Assert.assertTrue(allLeased.await(10, TimeUnit.SECONDS), "Every thread should get a device");
+
+            for (int i = 0; i < waiters; i++) {
+                int waiter = i;
+                executor.submit(() -> {
+                    DeviceLeaseManager.leaseDevice("ios");
+                    served.add(waiter);
+                    done.await();
+                    DeviceLeaseManager.releaseDevice();
+                    return null;
+                });
+                // Let each waiter queue up before the next one arrives
+                Thread.sleep(100);
+            }
+
+            for (int i = 0; i < Math.min(waiters, devices.size()); i++) {
+                releases.get(i).countDown();
+                long deadline = System.currentTimeMillis() + 10_000;
+                while (served.size() <= i && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < Math.min(waiters, devices.size()); i++) {
+                expected.add(i);
+            }
+            Assert.assertEquals(served, expected, "Released devices should go to the longest waiting thread");
+        } finally {
+            releases.forEach(CountDownLatch::countDown);
+            done.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
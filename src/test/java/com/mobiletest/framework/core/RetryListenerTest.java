@@ -0,0 +1,107 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.ConfigReader;
+import org.testng.Assert;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.TestNG;
+import org.testng.annotations.ITestAnnotation;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * RetryListenerTest runs a small suite with flaky tests and verifies that only the failed
+ * methods are retried, up to test.retry.count times, and how the results are counted.
+ */
+public class RetryListenerTest {
+
+    @Test
+    public void testFailedMethodsAreRetried() {
+        System.setProperty("test.retry.count", "2");
+        ConfigReader.initialize();
+        AtomicReference<RetryListener.Statistics> statistics = new AtomicReference<>();
+        try {
+            TestNG testng = new TestNG(false);
+            testng.setTestClasses(new Class[]{RetrySample.class});
+            testng.addListener(new RetryTransformer());
+            testng.addListener(new RetryListener());
+            testng.addListener(new ISuiteListener() {
+                @Override
+                public void onFinish(ISuite suite) {
+                    statistics.set(RetryListener.getStatistics(suite));
+                }
+            });
+            testng.setVerbose(0);
+
+            testng.run();
+        } finally {
+            System.clearProperty("test.retry.count");
+            ConfigReader.initialize();
+        }
+
+        Assert.assertEquals(RetrySample.stableRuns.get(), 1);
+        Assert.assertEquals(RetrySample.flakyRuns.get(), 2);
+        Assert.assertEquals(RetrySample.lastAttemptRuns.get(), 3);
+        Assert.assertEquals(statistics.get().getPassedFirstAttempt(), 1);
+        Assert.assertEquals(statistics.get().getPassedAfterRetry(), 2);
+        Assert.assertEquals(statistics.get().getFailed(), 0);
+        Assert.assertEquals(statistics.get().getRetries(), 3);
+    }
+
+    @Test
+    public void testFrameworkTestsAreNotRetried() throws Exception {
+        ITestAnnotation frameworkTest = annotation();
+        new RetryTransformer().transform(frameworkTest, null, null,
+                RetryListenerTest.class.getMethod("testFrameworkTestsAreNotRetried"));
+        Assert.assertNull(frameworkTest.getRetryAnalyzerClass());
+
+        ITestAnnotation suiteTest = annotation();
+        new RetryTransformer().transform(suiteTest, null, null, Object.class.getMethod("toString"));
+        Assert.assertEquals(suiteTest.getRetryAnalyzerClass(), RetryAnalyzer.class);
+    }
+
+    /**
+     * A @Test annotation without a retry analyzer, which only remembers the analyzer set on it.
+     */
+    private static ITestAnnotation annotation() {
+        AtomicReference<Object> analyzer = new AtomicReference<>();
+        return (ITestAnnotation) Proxy.newProxyInstance(ITestAnnotation.class.getClassLoader(),
+                new Class<?>[]{ITestAnnotation.class}, (proxy, method, args) -> {
+                    if ("setRetryAnalyzer".equals(method.getName())) {
+                        analyzer.set(args[0]);
+                    } else if ("getRetryAnalyzerClass".equals(method.getName())) {
+                        return analyzer.get();
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Run by the nested TestNG instance only. Its results are reported to the outer run as
+     * well, so every test must pass eventually. It is a framework test, which the transformer
+     * leaves alone, so it names the analyzer itself.
+     */
+    public static class RetrySample {
+        static final AtomicInteger stableRuns = new AtomicInteger();
+        static final AtomicInteger flakyRuns = new AtomicInteger();
+        static final AtomicInteger lastAttemptRuns = new AtomicInteger();
+
+        @Test(retryAnalyzer = RetryAnalyzer.class)
+        public void stable() {
+            stableRuns.incrementAndGet();
+        }
+
+        @Test(retryAnalyzer = RetryAnalyzer.class)
+        public void flaky() {
+            Assert.assertTrue(flakyRuns.incrementAndGet() > 1);
+        }
+
+        @Test(retryAnalyzer = RetryAnalyzer.class)
+        public void passesOnLastAttempt() {
+            Assert.assertTrue(lastAttemptRuns.incrementAndGet() > 2);
+        }
+    }
+}
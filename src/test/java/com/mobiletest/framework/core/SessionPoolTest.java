@@ -0,0 +1,143 @@
+package com.mobiletest.framework.core;
+
+import com.mobiletest.framework.config.ConfigReader;
+import com.mobiletest.framework.stub.StubAppiumServer;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * SessionPoolTest verifies against the stub server that pooled sessions are reused by the next
+ * lease and get the cheapest app reset a test needs, and how that tier is resolved from annotations.
+ */
+public class SessionPoolTest {
+
+    private static final String DEVICE = "session-pool-test";
+
+    private StubAppiumServer server;
+
+    @BeforeClass
+    public void startServer() {
+        server = new StubAppiumServer().start();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void testCheapestResetPerTier() {
+        AndroidDriver first = acquire(AppResetTier.RESTART);
+        long restarts = SessionPool.getResetCount(AppResetTier.RESTART);
+        long clears = SessionPool.getResetCount(AppResetTier.CLEAR_DATA);
+        long reinstalls = SessionPool.getResetCount(AppResetTier.REINSTALL);
+        SessionPool.release(first);
+
+        // A used session is restarted, or has its data cleared, in place
+        AndroidDriver second = acquire(AppResetTier.RESTART);
+        Assert.assertSame(second, first);
+        Assert.assertEquals(SessionPool.getResetCount(AppResetTier.RESTART), restarts + 1);
+        SessionPool.release(second);
+
+        long skipped = SessionPool.getResetsSkipped();
+        AndroidDriver third = acquire(AppResetTier.NONE);
+        Assert.assertSame(third, first);
+        Assert.assertEquals(SessionPool.getResetsSkipped(), skipped + 1);
+        Assert.assertTrue(SessionPool.resetApp(third, AppResetTier.CLEAR_DATA));
+        Assert.assertEquals(SessionPool.getResetCount(AppResetTier.CLEAR_DATA), clears + 1);
+        SessionPool.release(third);
+        Assert.assertEquals(server.getCommandCount("newSession"), 1);
+
+        // A reinstall replaces the session on the device with one created with fullReset
+        AndroidDriver reinstalled = acquire(AppResetTier.REINSTALL);
+        Assert.assertNotSame(reinstalled, first);
+        Assert.assertEquals(SessionPool.getResetCount(AppResetTier.REINSTALL), reinstalls + 1);
+        Assert.assertEquals(server.getCommandCount("newSession"), 2);
+        Assert.assertEquals(server.getActiveSessions(), 1);
+        Assert.assertFalse(SessionPool.resetApp(reinstalled, AppResetTier.REINSTALL));
+        SessionPool.discard(reinstalled);
+    }
+
+    @Test
+    public void testNextLeaseReusesReleasedSession() {
+        System.setProperty("appium.server.url", server.getUrl());
+        ConfigReader.initialize();
+        try {
+            long created = SessionPool.getSessionsCreated();
+            long reused = SessionPool.getSessionsReused();
+            for (int i = 0; i < 3; i++) {
+                DeviceManager.initializeAndroidDriver(DeviceLeaseManager.leaseDevice("android"));
+                DeviceManager.releaseDriver();
+                DeviceLeaseManager.releaseDevice();
+            }
+            Assert.assertEquals(SessionPool.getSessionsCreated(), created + 1,
+                    "The device released last should be leased again, with its pooled session");
+            Assert.assertEquals(SessionPool.getSessionsReused(), reused + 2);
+        } finally {
+            System.clearProperty("appium.server.url");
+            ConfigReader.initialize();
+        }
+    }
+
+    @Test
+    public void testResetTierResolution() throws Exception {
+        Method inherits = Annotated.class.getMethod("inherits");
+        Assert.assertEquals(AppResetTier.forMethod(Annotated.class, inherits), AppResetTier.CLEAR_DATA);
+        Assert.assertEquals(AppResetTier.forMethod(Annotated.class, Annotated.class.getMethod("overrides")), AppResetTier.NONE);
+        // An inherited test method runs with the tier of the subclass it is run in
+        Assert.assertEquals(AppResetTier.forMethod(Reinstalling.class, inherits), AppResetTier.REINSTALL);
+        Assert.assertEquals(AppResetTier.forMethod(Inheriting.class, inherits), AppResetTier.CLEAR_DATA);
+        Assert.assertEquals(AppResetTier.forMethod(Reinstalling.class, Reinstalling.class.getMethod("overrides")),
+                AppResetTier.NONE);
+        Assert.assertEquals(AppResetTier.forMethod(SessionPoolTest.class,
+                SessionPoolTest.class.getMethod("testResetTierResolution")), AppResetTier.getDefault());
+
+        DesiredCapabilities capabilities = new DesiredCapabilities();
+        capabilities.setCapability("fullReset", true);
+        AppResetTier.RESTART.applyTo(capabilities);
+        Assert.assertEquals(AppResetTier.ofNewSession(capabilities), AppResetTier.RESTART);
+        AppResetTier.REINSTALL.applyTo(capabilities);
+        Assert.assertEquals(AppResetTier.ofNewSession(capabilities), AppResetTier.REINSTALL);
+        Assert.assertEquals(SessionPool.sessionKey("android", DEVICE, capabilities),
+                SessionPool.sessionKey("android", DEVICE, new DesiredCapabilities()));
+    }
+
+    private AndroidDriver acquire(AppResetTier tier) {
+        DesiredCapabilities capabilities = new DesiredCapabilities();
+        capabilities.setCapability("appium:automationName", "UiAutomator2");
+        capabilities.setCapability("appPackage", "com.example.app");
+        tier.applyTo(capabilities);
+        return SessionPool.acquire("android", DEVICE, capabilities, tier, AndroidDriver.class, () -> {
+            try {
+                return new AndroidDriver(new URL(server.getUrl()), capabilities);
+            } catch (MalformedURLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @AppReset(AppResetTier.CLEAR_DATA)
+    public static class Annotated {
+        public void inherits() {
+        }
+
+        @AppReset(AppResetTier.NONE)
+        public void overrides() {
+        }
+    }
+
+    @AppReset(AppResetTier.REINSTALL)
+    public static class Reinstalling extends Annotated {
+    }
+
+    public static class Inheriting extends Annotated {
+    }
+}
@@ -0,0 +1,65 @@
+package com.mobiletest.framework.core;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ShardPlannerTest verifies that shards are balanced, complete and stable, and that recorded
+ * durations are merged.
+ */
+public class ShardPlannerTest {
+
+    @Test
+    public void testLongestTestsAreSpreadOverShards() {
+        Map<String, Long> durations = new HashMap<>();
+        durations.put("a", 100L);
+        durations.put("b", 70L);
+        durations.put("c", 60L);
+        durations.put("d", 40L);
+        durations.put("e", 30L);
+
+        List<List<String>> shards = ShardPlanner.plan(durations.keySet(), durations, 2);
+
+        long first = shards.get(0).stream().mapToLong(durations::get).sum();
+        long second = shards.get(1).stream().mapToLong(durations::get).sum();
+        Assert.assertEquals(first + second, 300);
+        Assert.assertTrue(Math.abs(first - second) <= 20, "Unbalanced shards: " + shards);
+    }
+
+    @Test
+    public void testEveryTestIsInExactlyOneShard() {
+        List<String> tests = Arrays.asList("t1", "t2", "t3", "t4", "t5", "t6", "t7");
+
+        List<List<String>> shards = ShardPlanner.plan(tests, Collections.singletonMap("t3", 5000L), 3);
+
+        Set<String> assigned = new HashSet<>();
+        shards.forEach(shard -> shard.forEach(test -> Assert.assertTrue(assigned.add(test), "Assigned twice: " + test)));
+        Assert.assertEquals(assigned, new HashSet<>(tests));
+        Assert.assertEquals(shards, ShardPlanner.plan(tests, Collections.singletonMap("t3", 5000L), 3),
+                "Every node must compute the same plan");
+    }
+
+    @Test
+    public void testDurationsAreMerged() throws Exception {
+        Path path = Files.createTempFile("test-durations", ".json");
+        Files.delete(path);
+
+        ShardPlanner.saveDurations(path, Collections.singletonMap("shard0/Test.a", 10L));
+        ShardPlanner.saveDurations(path, Collections.singletonMap("shard1/Test.b", 20L));
+
+        Map<String, Long> durations = ShardPlanner.loadDurations(path);
+        Assert.assertEquals(durations.get("shard0/Test.a"), Long.valueOf(10));
+        Assert.assertEquals(durations.get("shard1/Test.b"), Long.valueOf(20));
+        Files.delete(path);
+    }
+}
@@ -0,0 +1,113 @@
+package com.mobiletest.framework.pages;
+
+import com.mobiletest.framework.benchmarks.StubCommandExecutor;
+import com.mobiletest.framework.core.DeviceManager;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.pagefactory.AndroidFindBy;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.MalformedURLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ActionBatchTest verifies against an in-process stub driver that consecutive clicks are sent
+ * as a single W3C Actions request, and that they are only clicked one by one if the driver does
+ * not support that request.
+ */
+public class ActionBatchTest {
+
+    private CountingExecutor executor;
+    private Page page;
+
+    @BeforeMethod
+    public void createPage() throws MalformedURLException {
+        executor = new CountingExecutor();
+        DesiredCapabilities capabilities = new DesiredCapabilities();
+        capabilities.setCapability("automationName", "UiAutomator2");
+        DeviceManager.setDriver(new AndroidDriver(executor, capabilities));
+        page = new Page();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void clearDriver() {
+        DeviceManager.setDriver(null);
+    }
+
+    @Test
+    public void testClicksAreSentAsOneActionsRequest() {
+        page.tapBoth();
+
+        Assert.assertEquals(executor.count(DriverCommand.ACTIONS), 1);
+        Assert.assertEquals(executor.count(DriverCommand.CLICK_ELEMENT), 0);
+    }
+
+    @Test
+    public void testUnsupportedActionsFallBackToSingleClicks() {
+        executor.actionsFailure = new UnsupportedCommandException("unknown command");
+        page.tapBoth();
+
+        Assert.assertEquals(executor.count(DriverCommand.ACTIONS), 1);
+        Assert.assertEquals(executor.count(DriverCommand.CLICK_ELEMENT), 2);
+    }
+
+    @Test
+    public void testFailedActionsAreNotClickedAgain() {
+        executor.actionsFailure = new WebDriverException("Tap could not be completed");
+        Assert.expectThrows(WebDriverException.class, page::tapBoth);
+
+        Assert.assertEquals(executor.count(DriverCommand.CLICK_ELEMENT), 0,
+                "Taps that may have been dispatched must not be repeated");
+    }
+
+    /**
+     * A page that batches two clicks.
+     */
+    public static class Page extends BasePage {
+        @AndroidFindBy(id = "com.example.app:id/username_input")
+        private WebElement username;
+
+        @AndroidFindBy(id = "com.example.app:id/login_button")
+        private WebElement loginButton;
+
+        private void tapBoth() {
+            batch().click(username, "Tap username").click(loginButton, "Tap login").perform();
+        }
+    }
+
+    /**
+     * Counts the commands sent per name and optionally fails the Actions requests.
+     */
+    private static class CountingExecutor extends StubCommandExecutor {
+        private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+        private volatile WebDriverException actionsFailure;
+
+        private CountingExecutor() throws MalformedURLException {
+        }
+
+        @Override
+        public Response execute(Command command) {
+            counts.computeIfAbsent(command.getName(), name -> new AtomicInteger()).incrementAndGet();
+            if (DriverCommand.ACTIONS.equals(command.getName()) && actionsFailure != null) {
+                throw actionsFailure;
+            }
+            return super.execute(command);
+        }
+
+        private int count(String command) {
+            AtomicInteger count = counts.get(command);
+            return count == null ? 0 : count.get();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.mobiletest.framework.pages;
+
+import com.mobiletest.framework.benchmarks.StubCommandExecutor;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.pagefactory.AndroidFindBy;
+import io.appium.java_client.pagefactory.AppiumFieldDecorator;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.RemoteWebElement;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.support.PageFactory;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.MalformedURLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ElementCacheTest verifies against an in-process stub driver that cached fields are looked up
+ * once, looked up again when they go stale, and pass other calls through without lookups.
+ */
+public class ElementCacheTest {
+
+    private CountingExecutor executor;
+    private ElementCache cache;
+    private Page page;
+
+    @BeforeMethod
+    public void createPage() throws MalformedURLException {
+        executor = new CountingExecutor();
+        DesiredCapabilities capabilities = new DesiredCapabilities();
+        capabilities.setCapability("automationName", "UiAutomator2");
+        AndroidDriver driver = new AndroidDriver(executor, capabilities);
+        cache = new ElementCache(driver);
+        page = new Page();
+        PageFactory.initElements(cache.decorator(new AppiumFieldDecorator(driver, Duration.ZERO)), page);
+    }
+
+    @Test
+    public void testRepeatedAccessIsLookedUpOnce() {
+        long lookups = ElementCache.getLookups();
+        long hits = ElementCache.getHits();
+
+        Assert.assertEquals(page.username.getText(), "stub");
+        Assert.assertTrue(page.username.isDisplayed());
+        Assert.assertEquals(page.username.getText(), "stub");
+
+        Assert.assertEquals(executor.count(DriverCommand.FIND_ELEMENT), 1);
+        Assert.assertEquals(ElementCache.getLookups(), lookups + 1);
+        Assert.assertEquals(ElementCache.getHits(), hits + 2);
+
+        cache.invalidate();
+        page.username.getText();
+        Assert.assertEquals(executor.count(DriverCommand.FIND_ELEMENT), 2, "An invalidated field should be looked up again");
+    }
+
+    @Test
+    public void testStaleElementIsLookedUpAgain() {
+        String first = ((RemoteWebElement) ((WrapsElement) page.username).getWrappedElement()).getId();
+
+        executor.staleTexts.set(1);
+        Assert.assertEquals(page.username.getText(), "stub");
+
+        Assert.assertEquals(executor.count(DriverCommand.FIND_ELEMENT), 2);
+        Assert.assertEquals(executor.count(DriverCommand.GET_ELEMENT_TEXT), 2);
+        String second = ((RemoteWebElement) ((WrapsElement) page.username).getWrappedElement()).getId();
+        Assert.assertNotEquals(second, first, "The stale element ID should be replaced");
+    }
+
+    @Test
+    public void testStaleFreshLookupIsNotRetried() {
+        executor.staleTexts.set(1);
+        Assert.expectThrows(StaleElementReferenceException.class, () -> page.username.getText());
+        Assert.assertEquals(executor.count(DriverCommand.FIND_ELEMENT), 1);
+    }
+
+    @Test
+    public void testObjectMethodsAndListsPassThrough() {
+        Assert.assertEquals(page.username.toString(), "Cached element Page.username");
+        Assert.assertEquals(page.username, page.username);
+        Assert.assertNotEquals(page.username, page.password);
+        Assert.assertEquals(page.username.hashCode(), System.identityHashCode(page.username));
+        Assert.assertEquals(executor.count(DriverCommand.FIND_ELEMENT), 0, "Object methods should not look up the element");
+
+        Assert.assertFalse(page.buttons instanceof WrapsElement, "Lists are left to the Appium decorator");
+        page.buttons.size();
+        int listLookups = executor.count(DriverCommand.FIND_ELEMENTS);
+        Assert.assertTrue(listLookups > 0);
+        page.buttons.size();
+        Assert.assertEquals(executor.count(DriverCommand.FIND_ELEMENTS), 2 * listLookups, "Lists are looked up on every access");
+    }
+
+    /**
+     * A page with cached fields and a list field.
+     */
+    public static class Page {
+        @AndroidFindBy(id = "com.example.app:id/username_input")
+        private WebElement username;
+
+        @AndroidFindBy(id = "com.example.app:id/password_input")
+        private WebElement password;
+
+        @AndroidFindBy(className = "android.widget.Button")
+        private List<WebElement> buttons;
+    }
+
+    /**
+     * Counts the commands sent per name and fails the next getText calls with a stale element.
+     */
+    private static class CountingExecutor extends StubCommandExecutor {
+        private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+        private final AtomicInteger staleTexts = new AtomicInteger();
+
+        private CountingExecutor() throws MalformedURLException {
+        }
+
+        @Override
+        public Response execute(Command command) {
+            counts.computeIfAbsent(command.getName(), name -> new AtomicInteger()).incrementAndGet();
+            if (DriverCommand.GET_ELEMENT_TEXT.equals(command.getName()) && staleTexts.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new StaleElementReferenceException("Element is no longer attached to the DOM");
+            }
+            return super.execute(command);
+        }
+
+        private int count(String command) {
+            AtomicInteger count = counts.get(command);
+            return count == null ? 0 : count.get();
+        }
+    }
+}
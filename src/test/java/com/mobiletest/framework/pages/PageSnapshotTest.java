@@ -0,0 +1,81 @@
+package com.mobiletest.framework.pages;
+
+import com.mobiletest.framework.pages.PageSnapshot.Locator;
+import com.mobiletest.framework.pages.PageSnapshot.Locator.Strategy;
+import org.openqa.selenium.NoSuchElementException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * PageSnapshotTest verifies local locator evaluation against Android and iOS page sources.
+ */
+public class PageSnapshotTest {
+
+    private static final String ANDROID_SOURCE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<hierarchy rotation=\"0\">"
+            + "<android.widget.FrameLayout class=\"android.widget.FrameLayout\" displayed=\"true\">"
+            + "<android.widget.EditText class=\"android.widget.EditText\" resource-id=\"com.example.app:id/username_input\" text=\"testuser\" displayed=\"true\"/>"
+            + "<android.widget.Button class=\"android.widget.Button\" resource-id=\"com.example.app:id/login_button\" content-desc=\"login\" text=\"Log in\" displayed=\"true\"/>"
+            + "<android.widget.TextView class=\"android.widget.TextView\" resource-id=\"com.example.app:id/error_message\" text=\"\" displayed=\"false\"/>"
+            + "</android.widget.FrameLayout>"
+            + "</hierarchy>";
+
+    private static final String IOS_SOURCE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<XCUIElementTypeApplication type=\"XCUIElementTypeApplication\" name=\"App\" visible=\"true\">"
+            + "<XCUIElementTypeTextField type=\"XCUIElementTypeTextField\" name=\"username_input\" value=\"testuser\" visible=\"true\"/>"
+            + "<XCUIElementTypeStaticText type=\"XCUIElementTypeStaticText\" name=\"error_message\" label=\"Invalid credentials\" visible=\"true\"/>"
+            + "</XCUIElementTypeApplication>";
+
+    @Test
+    public void testAndroidLookupsByIdAccessibilityIdAndXPath() {
+        PageSnapshot snapshot = PageSnapshot.parse(ANDROID_SOURCE, true);
+
+        Assert.assertEquals(snapshot.getText(Locator.of(Strategy.ID, "com.example.app:id/username_input")), "testuser");
+        Assert.assertEquals(snapshot.getText(Locator.of(Strategy.ID, "username_input")), "testuser");
+        Assert.assertTrue(snapshot.isDisplayed(Locator.of(Strategy.ACCESSIBILITY_ID, "login")));
+        Assert.assertEquals(snapshot.getText(Locator.of(Strategy.XPATH, "//android.widget.Button[@content-desc='login']")), "Log in");
+        Assert.assertEquals(snapshot.findAll(Locator.of(Strategy.CLASS_NAME, "android.widget.EditText")).size(), 1);
+    }
+
+    @Test
+    public void testAndroidVisibility() {
+        PageSnapshot snapshot = PageSnapshot.parse(ANDROID_SOURCE, true);
+
+        Assert.assertFalse(snapshot.isDisplayed(Locator.of(Strategy.ID, "com.example.app:id/error_message")));
+        Assert.assertFalse(snapshot.isDisplayed(Locator.of(Strategy.ID, "com.example.app:id/missing")));
+        Assert.expectThrows(NoSuchElementException.class,
+                () -> snapshot.getText(Locator.of(Strategy.ID, "com.example.app:id/missing")));
+    }
+
+    @Test
+    public void testAnyDisplayedIgnoresHiddenCopiesAndOtherAttributes() {
+        String source = "<hierarchy>"
+                + "<android.widget.TextView resource-id=\"com.example.app:id/error_message\" displayed=\"false\"/>"
+                + "<android.widget.TextView resource-id=\"com.example.app:id/error_message\" displayed=\"true\"/>"
+                + "<android.widget.TextView resource-id=\"com.example.app:id/status\" text=\"toast\" displayed=\"true\"/>"
+                + "</hierarchy>";
+        PageSnapshot snapshot = PageSnapshot.parse(source, true);
+
+        Assert.assertTrue(snapshot.isAnyDisplayed(Locator.of(Strategy.ID, "error_message")));
+        Assert.assertFalse(snapshot.isAnyDisplayed(Locator.of(Strategy.ID, "toast")));
+        Assert.assertFalse(PageSnapshot.parse(ANDROID_SOURCE, true).isAnyDisplayed(Locator.of(Strategy.ID, "error_message")));
+    }
+
+    @Test
+    public void testIosLookups() {
+        PageSnapshot snapshot = PageSnapshot.parse(IOS_SOURCE, false);
+
+        Assert.assertEquals(snapshot.getText(Locator.of(Strategy.ACCESSIBILITY_ID, "username_input")), "testuser");
+        Assert.assertEquals(snapshot.getText(Locator.of(Strategy.ACCESSIBILITY_ID, "error_message")), "Invalid credentials");
+        Assert.assertTrue(snapshot.isDisplayed(Locator.of(Strategy.TEXT, "Invalid credentials")));
+    }
+
+    @Test
+    public void testLocatorsFromLoginPageFields() throws Exception {
+        Locator android = Locator.fromField(LoginPage.class.getDeclaredField("errorMessage"), true);
+        Locator ios = Locator.fromField(LoginPage.class.getDeclaredField("errorMessage"), false);
+
+        Assert.assertEquals(android.toString(), "ID=com.example.app:id/error_message");
+        Assert.assertEquals(ios.toString(), "ACCESSIBILITY_ID=error_message");
+    }
+}
@@ -0,0 +1,41 @@
+package com.mobiletest.framework.pages;
+
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WaitEngineTest verifies polling, ignored lookup failures and timeouts of the WaitEngine.
+ */
+public class WaitEngineTest {
+
+    @Test
+    public void testReturnsOnceConditionHolds() {
+        AtomicInteger polls = new AtomicInteger();
+
+        String value = WaitEngine.until("test-condition", () -> {
+            if (polls.incrementAndGet() < 3) {
+                throw new NoSuchElementException("not there yet");
+            }
+            return "found";
+        }, Duration.ofSeconds(5));
+
+        Assert.assertEquals(value, "found");
+        Assert.assertEquals(polls.get(), 3);
+    }
+
+    @Test
+    public void testFalseConditionTimesOutWithoutWaitingLonger() {
+        long start = System.nanoTime();
+
+        Assert.expectThrows(TimeoutException.class,
+                () -> WaitEngine.until("test-timeout", () -> false, Duration.ofMillis(300)));
+
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        Assert.assertTrue(elapsedMillis >= 300 && elapsedMillis < 1000, "Waited " + elapsedMillis + " ms");
+    }
+}
@@ -0,0 +1,74 @@
+package com.mobiletest.framework.stub;
+
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.time.Duration;
+
+/**
+ * StubAppiumServerTest drives the stub server with a real AndroidDriver and verifies the
+ * parsing of latency distributions.
+ */
+public class StubAppiumServerTest {
+
+    private StubAppiumServer server;
+
+    @BeforeClass
+    public void startServer() {
+        server = new StubAppiumServer().start();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void testLoginScreen() throws Exception {
+        DesiredCapabilities capabilities = new DesiredCapabilities();
+        capabilities.setCapability("appium:automationName", "UiAutomator2");
+        AndroidDriver driver = new AndroidDriver(new URL(server.getUrl()), capabilities);
+        try {
+            WebElement username = driver.findElement(AppiumBy.id("com.example.app:id/username_input"));
+            username.sendKeys("someone");
+            driver.findElement(AppiumBy.id("com.example.app:id/password_input")).sendKeys("wrong");
+            Assert.assertTrue(driver.findElements(AppiumBy.id("com.example.app:id/error_message")).isEmpty());
+
+            driver.findElement(AppiumBy.id("com.example.app:id/login_button")).click();
+
+            Assert.assertEquals(username.getText(), "someone");
+            Assert.assertEquals(driver.findElement(AppiumBy.id("com.example.app:id/error_message")).getText(),
+                    "Invalid username or password");
+            Assert.assertTrue(driver.getPageSource().contains("Invalid username or password"));
+            Assert.expectThrows(NoSuchElementException.class,
+                    () -> driver.findElement(AppiumBy.accessibilityId("missing")));
+        } finally {
+            driver.quit();
+        }
+
+        Assert.assertEquals(server.getActiveSessions(), 0);
+        Assert.assertEquals(server.getCommandCount("click"), 1);
+    }
+
+    @Test
+    public void testLatencyDistributions() {
+        Assert.assertEquals(LatencyModel.parse("50ms").sample(), Duration.ofMillis(50));
+
+        for (int i = 0; i < 100; i++) {
+            Duration uniform = LatencyModel.parse("uniform:20ms..80ms").sample();
+            Assert.assertTrue(uniform.compareTo(Duration.ofMillis(20)) >= 0 && uniform.compareTo(Duration.ofMillis(80)) <= 0);
+            Assert.assertTrue(LatencyModel.parse("lognormal:40ms..400ms").sample().toNanos() > 0);
+        }
+
+        Assert.expectThrows(IllegalArgumentException.class, () -> LatencyModel.parse("uniform:80ms..20ms"));
+        Assert.expectThrows(IllegalArgumentException.class, () -> LatencyModel.parse("lognormal:0ms..20ms"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.mobiletest.framework.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LatencyHistogramTest verifies the bucketing and percentiles of the latency histogram.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverTheirValues() {
+        for (long value : new long[]{0, 1, 7, 8, 15, 16, 17, 1000, 123456, 60_000_000L}) {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value));
+            Assert.assertTrue(highest >= value, "Bucket of " + value + " ends at " + highest);
+            Assert.assertTrue(highest <= value * 1.125 + 1, "Bucket of " + value + " ends at " + highest);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+
+        Assert.assertEquals(histogram.getCount(), 1000);
+        Assert.assertEquals(histogram.getMax(), 1_000_000L);
+        assertWithin(histogram.percentile(0.50), 500_000L);
+        assertWithin(histogram.percentile(0.95), 950_000L);
+        assertWithin(histogram.percentile(0.99), 990_000L);
+        Assert.assertEquals(histogram.percentile(1.0), 1_000_000L);
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(histogram.getCount(), 40_000);
+        Assert.assertEquals(histogram.getMax(), 9_999);
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        Assert.assertTrue(actual >= expected && actual <= expected * 1.125, "Expected about " + expected + " but was " + actual);
+    }
+}
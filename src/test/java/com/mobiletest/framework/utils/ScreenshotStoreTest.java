@@ -0,0 +1,56 @@
+package com.mobiletest.framework.utils;
+
+import com.mobiletest.framework.config.ConfigReader;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * ScreenshotStoreTest verifies that identical screenshots are stored as one blob, and that a
+ * blob whose write failed is written again with the next identical screenshot.
+ */
+public class ScreenshotStoreTest {
+
+    @Test
+    public void testIdenticalScreenshotsShareOneBlob() throws IOException {
+        byte[] errorScreen = ("error screen " + System.nanoTime()).getBytes();
+        byte[] loginScreen = ("login screen " + System.nanoTime()).getBytes();
+
+        String first = ScreenshotStore.store("Failure_testFailedLogin", errorScreen);
+        String retry = ScreenshotStore.store("Failure_testFailedLogin_retry", errorScreen.clone());
+        String other = ScreenshotStore.store("Failure_testEmptyCredentials", loginScreen);
+        ScreenshotWriter.shutdown();
+
+        Assert.assertEquals(retry, first, "Identical screenshots should map to the same blob");
+        Assert.assertNotEquals(other, first, "Different screenshots should map to different blobs");
+        Assert.assertEquals(Files.readAllBytes(Paths.get(first)), errorScreen);
+        Assert.assertEquals(Files.readAllBytes(Paths.get(other)), loginScreen);
+    }
+
+    @Test
+    public void testFailedWriteIsRetriedWithNextScreenshot() throws IOException {
+        Path directory = Files.createTempDirectory("screenshots");
+        // A file where the blob directory should be makes the write fail
+        Path blobs = Files.createFile(directory.resolve("blobs"));
+        System.setProperty("screenshot.directory", directory.toString());
+        ConfigReader.initialize();
+        try {
+            byte[] screen = ("screen " + System.nanoTime()).getBytes();
+            String blob = ScreenshotStore.store("Failure_first", screen);
+            ScreenshotWriter.shutdown();
+            Assert.assertFalse(Files.exists(Paths.get(blob)));
+
+            Files.delete(blobs);
+            Assert.assertEquals(ScreenshotStore.store("Failure_second", screen.clone()), blob);
+            ScreenshotWriter.shutdown();
+            Assert.assertEquals(Files.readAllBytes(Paths.get(blob)), screen, "The failed blob should be written again");
+        } finally {
+            System.clearProperty("screenshot.directory");
+            ConfigReader.initialize();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.mobiletest.tests;
+
+import com.mobiletest.framework.api.LoadRunner;
+import com.mobiletest.framework.api.LoadRunner.LoadReport;
+import io.qameta.allure.Allure;
+import io.qameta.allure.Description;
+import io.qameta.allure.Feature;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ApiLoadTest replays the scenarios of {@link ApiTest} concurrently against api.base.url as a
+ * throughput benchmark. It is excluded from regular runs; run it with mvn -P load test.
+ */
+@Feature("API Load Testing")
+public class ApiLoadTest {
+
+    /**
+     * Replay the API test scenarios and report requests per second and latency percentiles
+     */
+    @Test(groups = {"load"})
+    @Description("Replay the API test scenarios concurrently and report throughput and latency")
+    public void testApiLoad() {
+        ApiTest apiTest = new ApiTest();
+        Map<String, Runnable> scenarios = new LinkedHashMap<>();
+        scenarios.put("testGetUsers", apiTest::testGetUsers);
+        scenarios.put("testGetSpecificUser", apiTest::testGetSpecificUser);
+        scenarios.put("testCreateUser", apiTest::testCreateUser);
+
+        LoadReport report = LoadRunner.run(scenarios);
+
+        Allure.addAttachment("Load report", "application/json", report.toJson().toString(2), ".json");
+        Assert.assertTrue(report.getRequests() > 0, "No requests were sent");
+        Assert.assertEquals(report.getErrors(), 0, "Requests failed under load");
+    }
+}
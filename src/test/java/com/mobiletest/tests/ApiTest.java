@@ -1,5 +1,7 @@
 package com.mobiletest.tests;
 
+import com.mobiletest.framework.api.ApiClient;
+import com.mobiletest.framework.api.ApiResponse;
 import com.mobiletest.framework.core.BaseTest;
 import com.mobiletest.framework.utils.TestUtils;
 import io.qameta.allure.Description;
@@ -7,15 +9,9 @@ import io.qameta.allure.Feature;
 import io.qameta.allure.Severity;
 import io.qameta.allure.SeverityLevel;
 import io.qameta.allure.Story;
-import io.restassured.RestAssured;
-import io.restassured.http.ContentType;
-import io.restassured.response.Response;
 import org.testng.Assert;
-import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
-import static io.restassured.RestAssured.given;
-
 /**
  * ApiTest contains test cases for API testing.
  * This demonstrates how to perform API testing within the mobile test framework.
@@ -23,13 +19,6 @@ import static io.restassured.RestAssured.given;
 @Feature("API Testing")
 public class ApiTest extends BaseTest {
     
-    private final String BASE_URL = "https://jsonplaceholder.typicode.com";
-    
-    @BeforeClass
-    public void setUp() {
-        RestAssured.baseURI = BASE_URL;
-    }
-    
     /**
      * Test GET request to retrieve a list of users
      */
@@ -40,17 +29,16 @@ public class ApiTest extends BaseTest {
     public void testGetUsers() {
         TestUtils.logInfo("Starting API test: testGetUsers");
         
-        Response response = given()
-            .contentType(ContentType.JSON)
+        ApiResponse response = ApiResponse.of(ApiClient.request()
             .when()
             .get("/users")
             .then()
             .statusCode(200)
-            .extract().response();
+            .extract().response());
         
         // Verify the response contains multiple users
-        int userCount = response.jsonPath().getList("$").size();
-        TestUtils.logInfo("Number of users retrieved: " + userCount);
+        long userCount = response.count("$");
+        TestUtils.logInfo("Number of users retrieved: {}", userCount);
         Assert.assertTrue(userCount > 0, "User list should not be empty");
     }
     
@@ -66,20 +54,19 @@ public class ApiTest extends BaseTest {
         
         int userId = 1;
         
-        Response response = given()
-            .contentType(ContentType.JSON)
+        ApiResponse response = ApiResponse.of(ApiClient.request()
             .pathParam("userId", userId)
             .when()
             .get("/users/{userId}")
             .then()
             .statusCode(200)
-            .extract().response();
+            .extract().response());
         
         // Verify the user details
-        String username = response.jsonPath().getString("username");
-        String email = response.jsonPath().getString("email");
+        String username = response.getString("username");
+        String email = response.getString("email");
         
-        TestUtils.logInfo("User details - Username: " + username + ", Email: " + email);
+        TestUtils.logInfo("User details - Username: {}, Email: {}", username, email);
         
         Assert.assertNotNull(username, "Username should not be null");
         Assert.assertNotNull(email, "Email should not be null");
@@ -102,21 +89,20 @@ public class ApiTest extends BaseTest {
             + "\"email\": \"john.doe@example.com\""
             + "}";
         
-        Response response = given()
-            .contentType(ContentType.JSON)
+        ApiResponse response = ApiResponse.of(ApiClient.request()
             .body(requestBody)
             .when()
             .post("/users")
             .then()
             .statusCode(201)
-            .extract().response();
+            .extract().response());
         
         // Verify the created user
-        String name = response.jsonPath().getString("name");
-        String username = response.jsonPath().getString("username");
-        String email = response.jsonPath().getString("email");
+        String name = response.getString("name");
+        String username = response.getString("username");
+        String email = response.getString("email");
         
-        TestUtils.logInfo("Created user - Name: " + name + ", Username: " + username + ", Email: " + email);
+        TestUtils.logInfo("Created user - Name: {}, Username: {}, Email: {}", name, username, email);
         
         Assert.assertEquals(name, "John Doe", "Name should match the request");
         Assert.assertEquals(username, "johndoe", "Username should match the request");